@@ -4,12 +4,17 @@ import java.nio.file.Path;
 import java.util.concurrent.Callable;
 
 import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.config.ArchiveMode;
+import ca.purps.mangadownloader.config.EpubBackend;
+import ca.purps.mangadownloader.config.ExecutionMode;
+import ca.purps.mangadownloader.config.SchedulingPolicy;
 import ca.purps.mangadownloader.downloader.ParallelDownloader;
-import ca.purps.mangadownloader.scraper.BatotoScraper;
-import ca.purps.mangadownloader.scraper.KunMangaScraper;
+import ca.purps.mangadownloader.http.HttpClientFactory;
+import ca.purps.mangadownloader.metrics.MetricsExporter;
 import ca.purps.mangadownloader.scraper.MangaScraper;
+import ca.purps.mangadownloader.scraper.ScraperRegistry;
 import ca.purps.mangadownloader.tracker.DownloadTracker;
-import okhttp3.OkHttpClient;
+import ca.purps.mangadownloader.tracker.Tracker;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -27,6 +32,33 @@ public class Main implements Callable<Path> {
     @Option(names = { "--venv" }, description = "Location of the Python virtual environment for KCC conversion")
     private String pythonEnvPath = "";
 
+    @Option(names = { "--execution-mode" }, description = "Threads used for downloads: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    @Option(names = { "--archive-mode" }, description = "How pages reach the CBZ: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private ArchiveMode archiveMode = ArchiveMode.FILES;
+
+    @Option(names = { "--schedule" }, description = "Which chapters go first: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.OLDEST_FIRST;
+
+    @Option(names = { "--limit-rate" }, description = "Maximum download rate in bytes per second, 0 for unlimited (default: ${DEFAULT-VALUE})")
+    private long bandwidthBytesPerSecond = 0;
+
+    @Option(names = { "--image-store" }, description = "Keep downloaded images in a shared store so repeated images are fetched once (default: ${DEFAULT-VALUE})")
+    private boolean imageStoreEnabled = false;
+
+    @Option(names = { "--epub-backend" }, description = "How chapters become EPUBs: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private EpubBackend epubBackend = EpubBackend.detect();
+
+    @Option(names = { "--conversion-workers" }, description = "Chapters converted to EPUB at the same time (default: ${DEFAULT-VALUE})")
+    private int conversionWorkers = 1;
+
+    @Option(names = { "--kcc-workers" }, description = "KCC processes kept running for the KCC backend (default: ${DEFAULT-VALUE})")
+    private int kccWorkers = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = { "--metrics-port" }, description = "Serve Prometheus metrics on localhost at this port, 0 to disable (default: ${DEFAULT-VALUE})")
+    private int metricsPort = 0;
+
     public static void main(String[] args) {
         new CommandLine(new Main()).execute(args);
     }
@@ -37,23 +69,30 @@ public class Main implements Callable<Path> {
                 .downloadPath(destination)
                 .historyFilePath(destination.resolve("history.json"))
                 .pythonEnvPath(pythonEnvPath)
+                .executionMode(executionMode)
+                .archiveMode(archiveMode)
+                .schedulingPolicy(schedulingPolicy)
+                .bandwidthBytesPerSecond(bandwidthBytesPerSecond)
+                .imageStoreEnabled(imageStoreEnabled)
+                .epubBackend(epubBackend)
+                .conversionWorkers(conversionWorkers)
+                .kccWorkers(kccWorkers)
+                .metricsPort(metricsPort)
                 .build();
-        OkHttpClient httpClient = new OkHttpClient();
-
-        MangaScraper scraper;
-        if (url.startsWith(BatotoScraper.BASE_URL)) {
-            scraper = new BatotoScraper(config, httpClient);
-        } else if (url.startsWith(KunMangaScraper.BASE_URL)) {
-            scraper = new KunMangaScraper(config, httpClient);
-        } else {
-            throw new IllegalArgumentException("Unsupported URL: " + url);
-        }
+        HttpClientFactory httpClients = new HttpClientFactory(config);
+        MangaScraper scraper = ScraperRegistry.load(config, httpClients.getScraperClient(), httpClients.getRetryPolicy()).getScraper(url);
+
+        Tracker tracker = new DownloadTracker(config);
 
-        try (MangaDownloader app = new MangaDownloader(
+        try (MetricsExporter metrics = MetricsExporter.start(config);
+                MangaDownloader app = new MangaDownloader(
                 scraper,
-                new ParallelDownloader(config, new DownloadTracker(config)))) {
+                new ParallelDownloader(config, tracker, httpClients.getClient(), httpClients.getRetryPolicy()),
+                tracker::isChapterDownloaded)) {
 
             return app.download(url);
+        } finally {
+            httpClients.getBandwidthLimiter().logStats();
         }
     }
 
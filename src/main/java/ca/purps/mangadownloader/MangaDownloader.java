@@ -1,42 +1,38 @@
 package ca.purps.mangadownloader;
 
 import java.nio.file.Path;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 import ca.purps.mangadownloader.downloader.Downloader;
 import ca.purps.mangadownloader.model.MangaEntity;
-import ca.purps.mangadownloader.scraper.BatotoScraper;
-import ca.purps.mangadownloader.scraper.KunMangaScraper;
 import ca.purps.mangadownloader.scraper.MangaScraper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@RequiredArgsConstructor
 public class MangaDownloader implements AutoCloseable {
 
     private final MangaScraper scraper;
     private final Downloader downloader;
+    private final BiPredicate<String, String> isChapterDownloaded;
+
+    /**
+     * {@code isChapterDownloaded} is asked with the series and chapter URLs
+     * which chapters can be skipped without fetching them, typically
+     * {@code tracker::isChapterDownloaded}.
+     */
+    public MangaDownloader(MangaScraper scraper, Downloader downloader, BiPredicate<String, String> isChapterDownloaded) {
+        this.scraper = scraper;
+        this.downloader = downloader;
+        this.isChapterDownloaded = isChapterDownloaded;
+    }
 
     public Path download(String url) {
-        MangaEntity entity = null;
-
-        if (scraper instanceof BatotoScraper) {
-            if (url.contains("/series/")) {
-                entity = scraper.scrapeSeries(url);
-            } else if (url.contains("/chapter/")) {
-                entity = scraper.scrapeChapter(url);
-            } else {
-                throw new IllegalArgumentException("Invalid URL: " + url);
-            }
-        } else if (scraper instanceof KunMangaScraper) {
-            if (url.contains("/chapter")) {
-                entity = scraper.scrapeChapter(url);
-            } else if (url.contains("/manga/")) {
-                entity = scraper.scrapeSeries(url);
-            } else {
-                throw new IllegalArgumentException("Invalid URL: " + url);
-            }
-        }
+        MangaEntity entity = switch (scraper.classify(url)) {
+            case SERIES -> scrapeSeries(url);
+            case CHAPTER -> scraper.scrapeChapter(url);
+            default -> throw new IllegalArgumentException("Invalid URL: " + url);
+        };
 
         Path path = downloader.download(entity);
         if (path != null) {
@@ -45,6 +41,11 @@ public class MangaDownloader implements AutoCloseable {
         return path;
     }
 
+    private MangaEntity scrapeSeries(String url) {
+        Predicate<String> isCompleted = chapterUrl -> isChapterDownloaded.test(url, chapterUrl);
+        return downloader.supportsStreaming() ? scraper.streamSeries(url, isCompleted) : scraper.scrapeSeries(url, isCompleted);
+    }
+
     @Override
     public void close() throws Exception {
         if (downloader instanceof AutoCloseable) {
@@ -1,6 +1,7 @@
 package ca.purps.mangadownloader.config;
 
 import java.nio.file.Path;
+import java.util.Map;
 
 import lombok.Builder;
 import lombok.Value;
@@ -9,24 +10,95 @@ import lombok.Value;
 @Builder(toBuilder = true)
 public class AppConfig {
 
+    public static final String DEFAULT_CONVERSION_ARGUMENTS = "-p KoLC --webtoon --forcecolor --cropping 0 --stretch --upscale --nokepub";
+
     @Builder.Default
     private Path downloadPath = Path.of(System.getProperty("user.home"), "manga_downloader");
 
     @Builder.Default
     private Path historyFilePath = Path.of(System.getProperty("user.home"), "manga_downloader", "history.json");
 
+    @Builder.Default
+    private Path httpCachePath = Path.of(System.getProperty("user.home"), "manga_downloader", "http-cache");
+
+    @Builder.Default
+    private long httpCacheMaxBytes = 100L * 1024 * 1024;
+
+    @Builder.Default
+    private boolean httpCacheEnabled = true;
+
+    @Builder.Default
+    private Path imageStorePath = Path.of(System.getProperty("user.home"), "manga_downloader", "image-store");
+
+    @Builder.Default
+    private long imageStoreMaxBytes = 1024L * 1024 * 1024;
+
+    @Builder.Default
+    private boolean imageStoreEnabled = false;
+
     @Builder.Default
     private Boolean skipExisting = true;
 
     @Builder.Default
     private int maxConcurrentDownloads = Runtime.getRuntime().availableProcessors() * 11;
 
+    @Builder.Default
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    @Builder.Default
+    private int maxConcurrentScrapes = Runtime.getRuntime().availableProcessors() * 2;
+
+    @Builder.Default
+    private int maxPendingChapters = Runtime.getRuntime().availableProcessors() * 2;
+
+    @Builder.Default
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.OLDEST_FIRST;
+
+    @Builder.Default
+    private int maxConnectionsPerHost = 32;
+
+    @Builder.Default
+    private long connectionKeepAliveSeconds = 300;
+
+    @Builder.Default
+    private double defaultRequestsPerSecond = 10;
+
+    @Builder.Default
+    private Map<String, Double> hostRequestsPerSecond = Map.of();
+
+    @Builder.Default
+    private int hostRequestBurst = 20;
+
+    @Builder.Default
+    private long bandwidthBytesPerSecond = 0;
+
+    @Builder.Default
+    private long hostBandwidthBytesPerSecond = 0;
+
+    @Builder.Default
+    private long defaultRetryAfterMs = 5000;
+
+    @Builder.Default
+    private ArchiveMode archiveMode = ArchiveMode.FILES;
+
+    @Builder.Default
+    private long archiveBufferBytes = 16L * 1024 * 1024;
+
     @Builder.Default
     private int retryAttempts = 3;
 
     @Builder.Default
     private long retryDelayMs = 1000;
 
+    @Builder.Default
+    private long retryMaxDelayMs = 30000;
+
+    @Builder.Default
+    private int retryBudget = 100;
+
+    @Builder.Default
+    private double retryBudgetRefill = 0.1;
+
     @Builder.Default
     private String userAgent = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
 
@@ -34,11 +106,35 @@ public class AppConfig {
     private boolean convertToEpub = true;
 
     @Builder.Default
-    private String conversionArguments = "-p KoLC --webtoon --forcecolor --cropping 0 --stretch --upscale --nokepub";
+    private EpubBackend epubBackend = EpubBackend.detect();
+
+    @Builder.Default
+    private int conversionWorkers = 1;
+
+    @Builder.Default
+    private int conversionQueueSize = 4;
+
+    @Builder.Default
+    private int kccWorkers = Runtime.getRuntime().availableProcessors();
+
+    @Builder.Default
+    private long conversionTimeoutSeconds = 600;
+
+    @Builder.Default
+    private String conversionArguments = AppConfig.DEFAULT_CONVERSION_ARGUMENTS;
 
     @Builder.Default
     private String pythonEnvPath = "";
 
+    @Builder.Default
+    private Path kccProbeCachePath = Path.of(System.getProperty("user.home"), "manga_downloader", "kcc-probe.json");
+
+    @Builder.Default
+    private int metricsPort = 0;
+
+    @Builder.Default
+    private boolean metricsJmxEnabled = true;
+
     public static AppConfig defaults() {
         return AppConfig.builder().build();
     }
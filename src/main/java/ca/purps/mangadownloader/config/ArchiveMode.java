@@ -0,0 +1,6 @@
+package ca.purps.mangadownloader.config;
+
+public enum ArchiveMode {
+    FILES,
+    DIRECT
+}
@@ -0,0 +1,15 @@
+package ca.purps.mangadownloader.config;
+
+public enum EpubBackend {
+    NATIVE,
+    KCC;
+
+    /**
+     * KCC when {@code KCC_SCRIPT} points at an install, so existing setups
+     * keep their conversion arguments; the native writer otherwise.
+     */
+    public static EpubBackend detect() {
+        String script = System.getenv("KCC_SCRIPT");
+        return script == null || script.isBlank() ? NATIVE : KCC;
+    }
+}
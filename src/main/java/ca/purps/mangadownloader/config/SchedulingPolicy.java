@@ -0,0 +1,7 @@
+package ca.purps.mangadownloader.config;
+
+public enum SchedulingPolicy {
+    OLDEST_FIRST,
+    NEWEST_FIRST,
+    SMALLEST_FIRST
+}
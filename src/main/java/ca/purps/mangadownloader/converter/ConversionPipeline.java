@@ -0,0 +1,125 @@
+package ca.purps.mangadownloader.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import ca.purps.mangadownloader.exception.TrackerException;
+import ca.purps.mangadownloader.metrics.Metrics;
+import ca.purps.mangadownloader.model.Chapter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Conversion as a stage of its own, so chapters are converted while later
+ * ones are still downloading. Archived chapters are handed over through a
+ * queue of {@code conversionQueueSize} and picked up by
+ * {@code conversionWorkers} threads. When conversion falls behind, a full
+ * queue makes {@link #submit(Chapter)} wait, which holds back the download
+ * side instead of piling up finished archives.
+ * <p>
+ * A failed conversion does not stop the others; the first failure is thrown
+ * from {@link #finish()}.
+ */
+@Slf4j
+public class ConversionPipeline implements AutoCloseable {
+
+    private final EPubConverter converter;
+    private final BlockingQueue<Optional<Chapter>> queue;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final List<RuntimeException> failures = new ArrayList<>();
+
+    private boolean finished;
+
+    public ConversionPipeline(EPubConverter converter, int workers, int capacity) {
+        this.converter = converter;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+
+        Metrics.gauge("manga_conversion_queue_depth", "Archived chapters waiting for conversion", queue::size);
+
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            Thread worker = new Thread(this::work, "epub-converter-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            this.workers.add(worker);
+        }
+    }
+
+    /**
+     * Queues {@code chapter} for conversion, waiting while the queue is full.
+     */
+    public void submit(Chapter chapter) {
+        try {
+            queue.put(Optional.of(chapter));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TrackerException("Interrupted while queueing chapter for conversion: " + chapter.getName());
+        }
+    }
+
+    /**
+     * Waits for every queued chapter to be converted.
+     */
+    public void finish() {
+        stop();
+
+        synchronized (failures) {
+            if (!failures.isEmpty()) {
+                RuntimeException first = failures.get(0);
+                failures.subList(1, failures.size()).forEach(first::addSuppressed);
+                throw first;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private synchronized void stop() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                queue.put(Optional.empty());
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.forEach(Thread::interrupt);
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Optional<Chapter> next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next.isEmpty()) {
+                return;
+            }
+
+            Chapter chapter = next.get();
+            try {
+                converter.convertFromCBZ(chapter);
+            } catch (RuntimeException e) {
+                ConversionPipeline.log.error("Failed to convert chapter: {}", chapter.getName(), e);
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            }
+        }
+    }
+
+}
@@ -8,30 +8,18 @@ import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringReader;
-import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
 import javax.imageio.ImageIO;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -39,271 +27,148 @@ import javax.xml.transform.stream.StreamResult;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
 
 import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.config.EpubBackend;
 import ca.purps.mangadownloader.exception.TrackerException;
+import ca.purps.mangadownloader.metrics.Counter;
+import ca.purps.mangadownloader.metrics.Histogram;
+import ca.purps.mangadownloader.metrics.Metrics;
 import ca.purps.mangadownloader.model.Chapter;
-import ca.purps.mangadownloader.utility.ProcessHelper;
-import ca.purps.mangadownloader.utility.ProcessHelper.ProcessResult;
-import lombok.RequiredArgsConstructor;
+import ca.purps.mangadownloader.utility.ZipRewriter;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@RequiredArgsConstructor
-public class EPubConverter {
+public class EPubConverter implements AutoCloseable {
     private static final String KCC_SCRIPT_PATH = Optional.ofNullable(System.getenv("KCC_SCRIPT")).orElse("");
 
+    private static final Histogram CONVERT_SECONDS = Metrics.histogram("manga_stage_seconds", "Time spent per pipeline stage", "stage", "convert");
+    private static final Counter CONVERTED = Metrics.counter("manga_conversions_total", "CBZ to EPUB conversions", "result", "converted");
+    private static final Counter CONVERSION_FAILED = Metrics.counter("manga_conversions_total", "CBZ to EPUB conversions", "result", "failed");
+
     private final AppConfig config;
 
+    private KccWorkerPool kccWorkers;
+
+    public EPubConverter(AppConfig config) {
+        this.config = config;
+
+        if (config.isConvertToEpub() && config.getEpubBackend() == EpubBackend.NATIVE
+                && !AppConfig.DEFAULT_CONVERSION_ARGUMENTS.equals(config.getConversionArguments())) {
+            EPubConverter.log.warn("The native EPUB backend ignores conversion arguments \"{}\", use the KCC backend to apply them",
+                    config.getConversionArguments());
+        }
+    }
+
     public void convertFromCBZ(List<Chapter> chapters) {
-        if (!config.isConvertToEpub() || !isKccAvailable()) {
+        if (!isEnabled()) {
             return;
         }
 
-        chapters.forEach(this::convertFromCBZ);
+        try (ConversionPipeline pipeline = new ConversionPipeline(this, getParallelism(), chapters.size())) {
+            chapters.forEach(pipeline::submit);
+            pipeline.finish();
+        }
     }
 
-    private void convertFromCBZ(Chapter chapter) {
-        Path archivePath = chapter.getArchivePath();
-        try {
-            Path epubPath = archivePath.resolveSibling(archivePath.getFileName().toString().replace(".cbz", ".epub"));
-
-            ProcessResult result = ProcessHelper.run(config, String.format("python %s %s %s",
-                    EPubConverter.KCC_SCRIPT_PATH,
-                    archivePath.toString(),
-                    config.getConversionArguments()));
-
-            if (result.getExitCode() == 0) {
-                EPubConverter.log.info("Successfully converted CBZ {} to EPUB: {}", archivePath, epubPath);
+    /**
+     * How many chapters the backend can usefully convert at once.
+     */
+    public int getParallelism() {
+        return config.getEpubBackend() == EpubBackend.KCC ? config.getKccWorkers() : config.getConversionWorkers();
+    }
 
-                rebuildEPub(epubPath, chapter);
+    /**
+     * Whether conversion is switched on and its backend can run.
+     */
+    public boolean isEnabled() {
+        return config.isConvertToEpub() && (config.getEpubBackend() == EpubBackend.NATIVE || isKccAvailable());
+    }
 
-                Files.delete(archivePath);
-                chapter.setArchivePath(epubPath);
+    /**
+     * Converts one archived chapter, without checking {@link #isEnabled()}.
+     */
+    public void convertFromCBZ(Chapter chapter) {
+        Path archivePath = chapter.getArchivePath();
+        Path epubPath = archivePath.resolveSibling(archivePath.getFileName().toString().replace(".cbz", ".epub"));
+        long start = System.nanoTime();
+        try {
+            if (config.getEpubBackend() == EpubBackend.KCC) {
+                convertWithKcc(chapter, archivePath, epubPath);
             } else {
-                throw new TrackerException(String.format("Error converting CBZ %s to EPUB: %s", archivePath, result.getErrorOutput()));
+                new NativeEpubWriter(chapter).write(archivePath, epubPath);
             }
+            EPubConverter.log.info("Successfully converted CBZ {} to EPUB: {}", archivePath, epubPath);
+
+            Files.delete(archivePath);
+            chapter.setArchivePath(epubPath);
+            EPubConverter.CONVERTED.inc();
+        } catch (TrackerException e) {
+            EPubConverter.CONVERSION_FAILED.inc();
+            throw e;
         } catch (IOException e) {
+            EPubConverter.CONVERSION_FAILED.inc();
             throw new TrackerException(String.format("Error converting CBZ %s to EPUB: ", archivePath), e);
+        } finally {
+            EPubConverter.CONVERT_SECONDS.observeSince(start);
         }
     }
 
-    private void rebuildEPub(Path epubPath, Chapter chapter) {
-        String manifestContent = "";
-        String spineContent = "";
-        String opfEntryName = "";
-
-        File tempMetadata = null;
-        File tempEPub = null;
-
-        try {
-            try (ZipFile zipFile = new ZipFile(epubPath.toFile())) {
-                Enumeration<? extends ZipEntry> entries = zipFile.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    if (entry.getName().endsWith(".opf")) {
-                        opfEntryName = entry.getName();
-                        try (InputStream is = zipFile.getInputStream(entry)) {
-                            DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-                            Document existingDoc = db.parse(is);
-
-                            // Extract manifest and spine
-                            Node manifestNode = existingDoc.getElementsByTagName("manifest").item(0);
-                            Node spineNode = existingDoc.getElementsByTagName("spine").item(0);
-
-                            if (manifestNode != null) {
-                                manifestContent = nodeToString(manifestNode);
-                            }
-                            if (spineNode != null) {
-                                spineContent = nodeToString(spineNode);
-                            }
-
-                            break;
-                        }
-                    }
-                }
-            }
-
-            // Create new metadata document
-            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            Element packageElement = doc.createElement("package");
-            doc.appendChild(packageElement);
-            packageElement.setAttribute("xmlns", "http://www.idpf.org/2007/opf");
-            packageElement.setAttribute("unique-identifier", "uuid_id");
-            packageElement.setAttribute("version", "2.0");
-
-            Element metadata = doc.createElement("metadata");
-            metadata.setAttribute("xmlns:dc", "http://purl.org/dc/elements/1.1/");
-            metadata.setAttribute("xmlns:opf", "http://www.idpf.org/2007/opf");
-            packageElement.appendChild(metadata);
-
-            // Add required DC elements
-            addDcElement(doc, metadata, "identifier", UUID.randomUUID().toString(), Map.of("opf:scheme", "uuid", "id", "uuid_id"));
-            addDcElement(doc, metadata, "title", chapter.getSeries().getId() + " - " + chapter.getName() + " (" + chapter.getId() + ")", null);
-
-            chapter.getSeries().getAuthors().forEach(author -> {
-                addDcElement(doc, metadata, "creator", author, Map.of("opf:file-as", author, "opf:role", "aut"));
-            });
-
-            addDcElement(doc, metadata, "date", "0101-01-01T00:00:00+00:00", null);
-            addDcElement(doc, metadata, "description", chapter.getDescription(), null);
-            addDcElement(doc, metadata, "language", "eng", null);
-
-            addMetaElement(doc, metadata, "cover", "cover");
-
-            // Add Calibre metadata
-            addMetaElement(doc, metadata, "calibre:series", chapter.getSeries().getTitle());
-            addMetaElement(doc, metadata, "calibre:series_index", String.valueOf(chapter.getSeriesIndex()));
-            addMetaElement(doc, metadata, "calibre:timestamp", "0101-01-01T00:00:00+00:00");
-            addMetaElement(doc, metadata, "calibre:title_sort", chapter.getName());
-
-            // Append preserved content
-            if (!manifestContent.isEmpty()) {
-                appendXmlString(doc, packageElement, manifestContent);
-            }
-            if (!spineContent.isEmpty()) {
-                appendXmlString(doc, packageElement, spineContent);
-            }
+    private void convertWithKcc(Chapter chapter, Path archivePath, Path epubPath) throws IOException {
+        List<String> args = new ArrayList<>();
+        args.add(archivePath.toString());
+        args.addAll(List.of(config.getConversionArguments().split(" ")));
 
-            // Create temporary files
-            tempMetadata = File.createTempFile("metadata", ".opf", epubPath.getParent().toFile());
-            tempMetadata.deleteOnExit();
-            tempEPub = File.createTempFile("epub", ".epub", epubPath.getParent().toFile());
-            tempEPub.deleteOnExit();
-
-            // Write new metadata
-            TransformerFactory.newInstance()
-                    .newTransformer()
-                    .transform(new DOMSource(doc), new StreamResult(tempMetadata));
-
-            // Update EPUB
-            try (ZipFile zipFile = new ZipFile(epubPath.toFile());
-                    ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(tempEPub))) {
-
-                Enumeration<? extends ZipEntry> entries = zipFile.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    zos.putNextEntry(new ZipEntry(entry.getName()));
-
-                    if (entry.getName().equals(opfEntryName)) {
-                        Files.copy(tempMetadata.toPath(), zos);
-                    } else if ((entry.getName().contains("cover.")) && chapter.getSeries().getCoverBytes() != null) {
-                        String extension = entry.getName().substring(entry.getName().lastIndexOf('.') + 1);
-
-                        // Modify cover image
-                        byte[] coverBytes = chapter.getSeries().getCoverBytes();
-                        BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(coverBytes));
-
-                        Graphics2D g2d = originalImage.createGraphics();
-                        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HBGR);
-
-                        // Initial font size relative to image height
-                        int baseFontSize = originalImage.getHeight() / 10;
-                        Font font = new Font("Arial", Font.BOLD, baseFontSize);
-                        g2d.setFont(font);
-                        FontMetrics fm = g2d.getFontMetrics();
-
-                        // Black bar dimensions (fixed height)
-                        int barHeight = fm.getHeight() * 2;
-                        int barY = originalImage.getHeight() - barHeight;
-
-                        // Fill the entire width with a black bar
-                        g2d.setColor(new Color(0, 0, 0, 200));
-                        g2d.fillRect(0, barY, originalImage.getWidth(), barHeight);
-
-                        // Chapter name processing
-                        String chapterName = chapter.getName();
-                        boolean fontReduced = false;
-
-                        // Only reduce the font size if necessary
-                        while (fm.stringWidth(chapterName) > originalImage.getWidth() * 0.9) {
-                            baseFontSize -= 2;
-                            font = new Font("Arial", Font.BOLD, baseFontSize);
-                            g2d.setFont(font);
-                            fm = g2d.getFontMetrics();
-                            fontReduced = true;
-
-                            // Attempt splitting when font gets too small
-                            if (baseFontSize < originalImage.getHeight() / 20) {
-                                break;
-                            }
-                        }
+        KccWorkerPool.Result result = getKccWorkers().convert(args);
+        if (result.exitCode() != 0) {
+            throw new TrackerException(String.format("Error converting CBZ %s to EPUB: %s", archivePath, result.error()));
+        }
 
-                        // Determine whether we need to split the text
-                        String[] lines = { chapterName };
-                        if (fontReduced && chapterName.contains(" ")) {
-                            int bestSplit = -1;
-                            int midPoint = chapterName.length() / 2;
-
-                            // Try to find a good split point, prioritizing after `:` or a space near the middle
-                            for (int i = midPoint; i < chapterName.length(); i++) {
-                                if (chapterName.charAt(i) == ':' || chapterName.charAt(i) == ' ') {
-                                    bestSplit = i + 1; // Include space after the split
-                                    break;
-                                }
-                            }
-
-                            if (bestSplit == -1) {
-                                // Fallback: Find the last space before the midpoint
-                                for (int i = midPoint; i > 0; i--) {
-                                    if (chapterName.charAt(i) == ' ') {
-                                        bestSplit = i + 1;
-                                        break;
-                                    }
-                                }
-                            }
-
-                            if (bestSplit > 0) {
-                                lines = new String[] {
-                                        chapterName.substring(0, bestSplit).trim(),
-                                        chapterName.substring(bestSplit).trim()
-                                };
-                            }
-                        }
+        rebuildEPub(epubPath, chapter);
+    }
 
-                        // Recalculate font metrics after adjustments
-                        fm = g2d.getFontMetrics(font);
+    /**
+     * Replaces the OPF metadata and stamps the cover in the EPUB KCC wrote.
+     * Every other entry, the page images included, is copied still
+     * compressed.
+     */
+    private void rebuildEPub(Path epubPath, Chapter chapter) {
+        Path tempEPub = null;
 
-                        // Calculate y-position to center the text within the bar
-                        int textY = barY + (barHeight - fm.getHeight() * lines.length) / 2 + fm.getAscent();
+        try {
+            try (ZipRewriter epub = new ZipRewriter(epubPath)) {
+                Optional<String> opfEntryName = epub.getNames().stream()
+                        .filter(name -> name.endsWith(".opf"))
+                        .findFirst();
+
+                if (opfEntryName.isPresent()) {
+                    Document existingDoc = DocumentBuilderFactory.newInstance()
+                            .newDocumentBuilder()
+                            .parse(new ByteArrayInputStream(epub.read(opfEntryName.get())));
+                    epub.replace(opfEntryName.get(), createMetadata(chapter, existingDoc));
+                }
 
-                        // Draw the chapter name in white, line by line
-                        g2d.setColor(Color.WHITE);
-                        for (String line : lines) {
-                            int textWidth = fm.stringWidth(line);
-                            int textX = (originalImage.getWidth() - textWidth) / 2;
-                            g2d.drawString(line, textX, textY);
-                            textY += fm.getHeight(); // Move to next line
+                if (chapter.getSeries().getCoverBytes() != null) {
+                    for (String name : epub.getNames()) {
+                        if (name.contains("cover.")) {
+                            epub.replace(name, stampCover(chapter, name.substring(name.lastIndexOf('.') + 1)));
                         }
-
-                        g2d.dispose();
-
-                        // Write the modified image back
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        ImageIO.write(originalImage, extension, baos);
-                        baos.writeTo(zos);
-                    } else {
-                        zipFile.getInputStream(entry).transferTo(zos);
                     }
-                    zos.closeEntry();
                 }
+
+                tempEPub = Files.createTempFile(epubPath.getParent(), "epub", ".epub");
+                epub.writeTo(tempEPub);
             }
 
-            // Replace original file and cleanup
-            Files.move(tempEPub.toPath(), epubPath, StandardCopyOption.REPLACE_EXISTING);
-            Files.deleteIfExists(tempMetadata.toPath());
+            // Replace original file
+            Files.move(tempEPub, epubPath, StandardCopyOption.REPLACE_EXISTING);
         } catch (Exception e) {
             EPubConverter.log.error("Failed to add EPUB metadata", e);
             throw new TrackerException("Failed to add EPUB metadata", e);
         } finally {
             try {
-                if (tempMetadata != null) {
-                    Files.deleteIfExists(tempMetadata.toPath());
-                }
-
                 if (tempEPub != null) {
-                    Files.deleteIfExists(tempEPub.toPath());
+                    Files.deleteIfExists(tempEPub);
                 }
             } catch (IOException e) {
                 EPubConverter.log.warn("Could not delete temporary file", e);
@@ -311,6 +176,186 @@ public class EPubConverter {
         }
     }
 
+    /**
+     * Builds the OPF for {@code chapter}, keeping the manifest and spine of
+     * {@code existingDoc}.
+     */
+    private byte[] createMetadata(Chapter chapter, Document existingDoc) throws Exception {
+        // Extract manifest and spine
+        Node manifestNode = existingDoc.getElementsByTagName("manifest").item(0);
+        Node spineNode = existingDoc.getElementsByTagName("spine").item(0);
+
+        // Create new metadata document
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element packageElement = doc.createElement("package");
+        doc.appendChild(packageElement);
+        packageElement.setAttribute("xmlns", "http://www.idpf.org/2007/opf");
+        packageElement.setAttribute("unique-identifier", "uuid_id");
+        packageElement.setAttribute("version", "2.0");
+
+        Element metadata = doc.createElement("metadata");
+        metadata.setAttribute("xmlns:dc", "http://purl.org/dc/elements/1.1/");
+        metadata.setAttribute("xmlns:opf", "http://www.idpf.org/2007/opf");
+        packageElement.appendChild(metadata);
+
+        // Add required DC elements
+        addDcElement(doc, metadata, "identifier", UUID.randomUUID().toString(), Map.of("opf:scheme", "uuid", "id", "uuid_id"));
+        addDcElement(doc, metadata, "title", title(chapter), null);
+
+        chapter.getSeries().getAuthors().forEach(author -> {
+            addDcElement(doc, metadata, "creator", author, Map.of("opf:file-as", author, "opf:role", "aut"));
+        });
+
+        addDcElement(doc, metadata, "date", "0101-01-01T00:00:00+00:00", null);
+        addDcElement(doc, metadata, "description", chapter.getDescription(), null);
+        addDcElement(doc, metadata, "language", "eng", null);
+
+        addMetaElement(doc, metadata, "cover", "cover");
+
+        // Add Calibre metadata
+        addMetaElement(doc, metadata, "calibre:series", chapter.getSeries().getTitle());
+        addMetaElement(doc, metadata, "calibre:series_index", String.valueOf(chapter.getSeriesIndex()));
+        addMetaElement(doc, metadata, "calibre:timestamp", "0101-01-01T00:00:00+00:00");
+        addMetaElement(doc, metadata, "calibre:title_sort", chapter.getName());
+
+        // Append preserved content
+        if (manifestNode != null) {
+            packageElement.appendChild(doc.importNode(manifestNode, true));
+        }
+        if (spineNode != null) {
+            packageElement.appendChild(doc.importNode(spineNode, true));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TransformerFactory.newInstance()
+                .newTransformer()
+                .transform(new DOMSource(doc), new StreamResult(out));
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the series cover with the chapter name drawn on a bar along
+     * the bottom, encoded as {@code extension}.
+     */
+    static byte[] stampCover(Chapter chapter, String extension) throws IOException {
+        // Modify cover image
+        byte[] coverBytes = chapter.getSeries().getCoverBytes();
+        BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(coverBytes));
+        if (originalImage == null) {
+            return coverBytes;
+        }
+
+        Graphics2D g2d = originalImage.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HBGR);
+
+        // Initial font size relative to image height
+        int baseFontSize = originalImage.getHeight() / 10;
+        Font font = new Font("Arial", Font.BOLD, baseFontSize);
+        g2d.setFont(font);
+        FontMetrics fm = g2d.getFontMetrics();
+
+        // Black bar dimensions (fixed height)
+        int barHeight = fm.getHeight() * 2;
+        int barY = originalImage.getHeight() - barHeight;
+
+        // Fill the entire width with a black bar
+        g2d.setColor(new Color(0, 0, 0, 200));
+        g2d.fillRect(0, barY, originalImage.getWidth(), barHeight);
+
+        // Chapter name processing
+        String chapterName = chapter.getName();
+        boolean fontReduced = false;
+
+        // Only reduce the font size if necessary
+        while (fm.stringWidth(chapterName) > originalImage.getWidth() * 0.9) {
+            baseFontSize -= 2;
+            font = new Font("Arial", Font.BOLD, baseFontSize);
+            g2d.setFont(font);
+            fm = g2d.getFontMetrics();
+            fontReduced = true;
+
+            // Attempt splitting when font gets too small
+            if (baseFontSize < originalImage.getHeight() / 20) {
+                break;
+            }
+        }
+
+        // Determine whether we need to split the text
+        String[] lines = { chapterName };
+        if (fontReduced && chapterName.contains(" ")) {
+            int bestSplit = -1;
+            int midPoint = chapterName.length() / 2;
+
+            // Try to find a good split point, prioritizing after `:` or a space near the middle
+            for (int i = midPoint; i < chapterName.length(); i++) {
+                if (chapterName.charAt(i) == ':' || chapterName.charAt(i) == ' ') {
+                    bestSplit = i + 1; // Include space after the split
+                    break;
+                }
+            }
+
+            if (bestSplit == -1) {
+                // Fallback: Find the last space before the midpoint
+                for (int i = midPoint; i > 0; i--) {
+                    if (chapterName.charAt(i) == ' ') {
+                        bestSplit = i + 1;
+                        break;
+                    }
+                }
+            }
+
+            if (bestSplit > 0) {
+                lines = new String[] {
+                        chapterName.substring(0, bestSplit).trim(),
+                        chapterName.substring(bestSplit).trim()
+                };
+            }
+        }
+
+        // Recalculate font metrics after adjustments
+        fm = g2d.getFontMetrics(font);
+
+        // Calculate y-position to center the text within the bar
+        int textY = barY + (barHeight - fm.getHeight() * lines.length) / 2 + fm.getAscent();
+
+        // Draw the chapter name in white, line by line
+        g2d.setColor(Color.WHITE);
+        for (String line : lines) {
+            int textWidth = fm.stringWidth(line);
+            int textX = (originalImage.getWidth() - textWidth) / 2;
+            g2d.drawString(line, textX, textY);
+            textY += fm.getHeight(); // Move to next line
+        }
+
+        g2d.dispose();
+
+        // Write the modified image back
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (!ImageIO.write(originalImage, extension, baos)) {
+            return coverBytes;
+        }
+        return baos.toByteArray();
+    }
+
+    private synchronized KccWorkerPool getKccWorkers() {
+        if (kccWorkers == null) {
+            kccWorkers = new KccWorkerPool(config, EPubConverter.KCC_SCRIPT_PATH);
+        }
+        return kccWorkers;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (kccWorkers != null) {
+            kccWorkers.close();
+            kccWorkers = null;
+        }
+    }
+
+    static String title(Chapter chapter) {
+        return chapter.getSeries().getId() + " - " + chapter.getName() + " (" + chapter.getId() + ")";
+    }
+
     private List<String> splitTextIntoLines(String text, FontMetrics fm, int maxWidth) {
         List<String> lines = new ArrayList<>();
         StringBuilder currentLine = new StringBuilder();
@@ -330,21 +375,6 @@ public class EPubConverter {
         return lines;
     }
 
-    private String nodeToString(Node node) throws TransformerException {
-        StringWriter sw = new StringWriter();
-        Transformer t = TransformerFactory.newInstance().newTransformer();
-        t.transform(new DOMSource(node), new StreamResult(sw));
-        return sw.toString();
-    }
-
-    private void appendXmlString(Document doc, Element parent, String xmlString) throws Exception {
-        Document fragment = DocumentBuilderFactory.newInstance()
-                .newDocumentBuilder()
-                .parse(new InputSource(new StringReader(xmlString)));
-        Node importedNode = doc.importNode(fragment.getDocumentElement(), true);
-        parent.appendChild(importedNode);
-    }
-
     private void addDcElement(Document doc, Element parent, String name, String content, Map<String, String> attributes) {
         Element element = doc.createElement("dc:" + name);
         if (attributes != null) {
@@ -369,22 +399,14 @@ public class EPubConverter {
         EPubConverter.log.debug("KCC found: {}", EPubConverter.KCC_SCRIPT_PATH);
 
         try {
-            ProcessResult result = ProcessHelper.run(config,
-                    String.format("python %s --help", EPubConverter.KCC_SCRIPT_PATH));
-
-            boolean available = result.getExitCode() == 0;
-
-            if (available) {
-                EPubConverter.log.info("KCC is available");
-            } else {
-                throw new TrackerException(String.format("KCC is unavailable: %s", result.getErrorOutput()));
-            }
-
-            return available;
+            KccProbe.Capabilities kcc = KccProbe.probe(config, EPubConverter.KCC_SCRIPT_PATH);
+            kcc.checkArguments(config.getConversionArguments());
+            EPubConverter.log.debug("KCC {} is available", kcc.getVersion());
+            return true;
         } catch (IOException e) {
             EPubConverter.log.warn("Error checking KCC availability", e);
             return false;
         }
     }
 
-}
\ No newline at end of file
+}
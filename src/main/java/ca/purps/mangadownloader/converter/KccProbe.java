@@ -0,0 +1,163 @@
+package ca.purps.mangadownloader.converter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.exception.TrackerException;
+import ca.purps.mangadownloader.utility.ProcessHelper;
+import ca.purps.mangadownloader.utility.ProcessHelper.ProcessResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds out whether KCC runs, which version it is and which options it
+ * accepts, by reading {@code kcc-c2e.py --help}. The answer is kept for the
+ * life of the process and in {@code kccProbeCachePath} across runs, keyed by
+ * script, virtual environment and modification times, so KCC is only
+ * launched again after it has been changed or moved.
+ */
+@Slf4j
+class KccProbe {
+
+    private static final Pattern VERSION = Pattern.compile("\\bv?(\\d+\\.\\d+(?:\\.\\d+)*)\\b");
+    private static final Pattern FLAG = Pattern.compile("(?<![\\w-])(--?[A-Za-z][\\w-]*)");
+
+    private static final Map<String, Capabilities> PROBED = new ConcurrentHashMap<>();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Capabilities {
+        private String version;
+        private Set<String> flags = new TreeSet<>();
+
+        /**
+         * Fails if {@code arguments} uses an option this KCC does not list.
+         */
+        void checkArguments(String arguments) {
+            if (flags.isEmpty()) {
+                return;
+            }
+            List<String> unknown = List.of(arguments.trim().split("\\s+")).stream()
+                    .filter(token -> KccProbe.FLAG.matcher(token).lookingAt())
+                    .map(token -> token.split("=", 2)[0])
+                    .filter(flag -> !flags.contains(flag))
+                    .toList();
+            if (!unknown.isEmpty()) {
+                throw new TrackerException(String.format("KCC %s does not support conversion arguments %s", version, unknown));
+            }
+        }
+    }
+
+    @Data
+    static class Cache {
+        private Map<String, Capabilities> entries = new HashMap<>();
+    }
+
+    private KccProbe() {
+    }
+
+    /**
+     * Returns what the KCC at {@code script} supports, probing it only when
+     * neither this process nor the cache file has seen it in its current
+     * state.
+     */
+    static Capabilities probe(AppConfig config, String script) throws IOException {
+        String key = key(config, Path.of(script));
+        Capabilities known = KccProbe.PROBED.get(key);
+        if (known != null) {
+            return known;
+        }
+
+        synchronized (KccProbe.PROBED) {
+            known = KccProbe.PROBED.get(key);
+            if (known != null) {
+                return known;
+            }
+
+            Cache cache = load(config.getKccProbeCachePath());
+            known = cache.getEntries().get(key);
+            if (known == null) {
+                known = run(config, script);
+                cache.getEntries().put(key, known);
+                save(config.getKccProbeCachePath(), cache);
+            } else {
+                KccProbe.log.debug("Using cached KCC probe for {}", script);
+            }
+            KccProbe.PROBED.put(key, known);
+            return known;
+        }
+    }
+
+    static Cache load(Path path) {
+        if (!Files.exists(path)) {
+            return new Cache();
+        }
+        try {
+            return KccProbe.MAPPER.readValue(path.toFile(), Cache.class);
+        } catch (IOException e) {
+            KccProbe.log.warn("Ignoring unreadable KCC probe cache {}: {}", path, e.getMessage());
+            return new Cache();
+        }
+    }
+
+    private static void save(Path path, Cache cache) {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            KccProbe.MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), cache);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            KccProbe.log.warn("Failed to save KCC probe cache {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static Capabilities run(AppConfig config, String script) throws IOException {
+        ProcessResult result = ProcessHelper.run(config, String.format("python %s --help", script));
+        if (result.getExitCode() != 0) {
+            throw new TrackerException(String.format("KCC is unavailable: %s", result.getErrorOutput()));
+        }
+
+        String help = result.getOutput() + result.getErrorOutput();
+        Matcher version = KccProbe.VERSION.matcher(help);
+        Set<String> flags = new TreeSet<>();
+        Matcher flag = KccProbe.FLAG.matcher(help);
+        while (flag.find()) {
+            flags.add(flag.group(1));
+        }
+
+        Capabilities capabilities = new Capabilities(version.find() ? version.group(1) : "unknown", flags);
+        KccProbe.log.debug("Probed KCC {} at {} with {} options", capabilities.getVersion(), script, flags.size());
+        return capabilities;
+    }
+
+    /**
+     * Identifies one installation: the script, the environment it runs in and
+     * when it, or the {@code kindlecomicconverter} package next to it, last
+     * changed.
+     */
+    private static String key(AppConfig config, Path script) throws IOException {
+        Path absolute = script.toAbsolutePath().normalize();
+        Path module = absolute.resolveSibling("kindlecomicconverter").resolve("__init__.py");
+        long moduleModified = Files.exists(module) ? Files.getLastModifiedTime(module).toMillis() : 0;
+        return String.join("|", absolute.toString(), config.getPythonEnvPath(),
+                String.valueOf(Files.getLastModifiedTime(absolute).toMillis()), String.valueOf(moduleModified));
+    }
+
+}
@@ -0,0 +1,304 @@
+package ca.purps.mangadownloader.converter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.utility.ProcessHelper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps up to {@code kccWorkers} Python processes running with KCC already
+ * imported, so a conversion costs a line on a pipe instead of an interpreter
+ * start. Workers are started on demand and reused; callers beyond the pool
+ * size wait for a free one.
+ * <p>
+ * A worker that dies mid-job is replaced and the job retried once on the new
+ * worker. A job that runs past {@code conversionTimeoutSeconds} has its
+ * worker killed, along with any processes KCC spawned, and fails.
+ */
+@Slf4j
+class KccWorkerPool implements AutoCloseable {
+
+    private static final long STARTUP_TIMEOUT_SECONDS = 120;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    record Result(int exitCode, String error) {
+    }
+
+    private final AppConfig config;
+    private final String kccScript;
+    private final Duration timeout;
+
+    private final Semaphore permits;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong jobIds = new AtomicLong();
+    private final AtomicInteger workerIds = new AtomicInteger();
+
+    private Path workerScript;
+    private volatile boolean closed;
+
+    KccWorkerPool(AppConfig config, String kccScript) {
+        this.config = config;
+        this.kccScript = kccScript;
+        this.timeout = Duration.ofSeconds(config.getConversionTimeoutSeconds());
+        this.permits = new Semaphore(Math.max(1, config.getKccWorkers()));
+    }
+
+    /**
+     * Runs KCC with {@code args} on a free worker.
+     */
+    Result convert(List<String> args) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a KCC worker");
+        }
+
+        try {
+            for (int attempt = 1;; attempt++) {
+                Worker worker = acquire();
+                try {
+                    Result result = worker.call(jobIds.incrementAndGet(), args);
+                    idle.add(worker);
+                    return result;
+                } catch (WorkerExitedException e) {
+                    discard(worker);
+                    if (attempt > 1) {
+                        throw e;
+                    }
+                    KccWorkerPool.log.warn("KCC worker exited during a job, restarting it: {}", e.getMessage());
+                } catch (IOException e) {
+                    discard(worker);
+                    throw e;
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : workers) {
+            worker.shutdown();
+        }
+        workers.clear();
+        idle.clear();
+
+        try {
+            if (workerScript != null) {
+                Files.deleteIfExists(workerScript);
+            }
+        } catch (IOException e) {
+            KccWorkerPool.log.debug("Failed to delete KCC worker script", e);
+        }
+    }
+
+    private Worker acquire() throws IOException {
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            if (worker.process.isAlive()) {
+                return worker;
+            }
+            discard(worker);
+        }
+        return start();
+    }
+
+    private Worker start() throws IOException {
+        if (closed) {
+            throw new IOException("KCC worker pool is closed");
+        }
+
+        String command = String.format("python %s %s", workerScript(), kccScript);
+        Worker worker = new Worker(workerIds.incrementAndGet(), ProcessHelper.builder(config, command).start());
+        workers.add(worker);
+
+        try {
+            JsonNode ready = worker.next(Duration.ofSeconds(KccWorkerPool.STARTUP_TIMEOUT_SECONDS));
+            if (!ready.path("ready").asBoolean()) {
+                throw new IOException("KCC worker sent an unexpected greeting: " + ready);
+            }
+        } catch (IOException e) {
+            discard(worker);
+            throw new IOException("Failed to start KCC worker: " + e.getMessage(), e);
+        }
+
+        KccWorkerPool.log.debug("Started KCC worker {} ({} running)", worker.id, workers.size());
+        return worker;
+    }
+
+    private void discard(Worker worker) {
+        workers.remove(worker);
+        worker.kill();
+    }
+
+    private synchronized Path workerScript() throws IOException {
+        if (workerScript == null) {
+            Path script = Files.createTempFile("kcc_worker", ".py");
+            try (InputStream in = KccWorkerPool.class.getResourceAsStream("/kcc_worker.py")) {
+                if (in == null) {
+                    throw new IOException("kcc_worker.py is missing from the classpath");
+                }
+                Files.copy(in, script, StandardCopyOption.REPLACE_EXISTING);
+            }
+            script.toFile().deleteOnExit();
+            workerScript = script;
+        }
+        return workerScript;
+    }
+
+    private static class WorkerExitedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        WorkerExitedException(String message) {
+            super(message);
+        }
+
+    }
+
+    private class Worker {
+
+        private final int id;
+        private final Process process;
+        private final BufferedWriter stdin;
+        private final BlockingQueue<Optional<JsonNode>> responses = new LinkedBlockingQueue<>();
+
+        Worker(int id, Process process) {
+            this.id = id;
+            this.process = process;
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+            daemon("kcc-worker-" + id + "-out", this::readResponses);
+            daemon("kcc-worker-" + id + "-err", this::drainErrors);
+        }
+
+        Result call(long jobId, List<String> args) throws IOException {
+            ObjectNode job = KccWorkerPool.MAPPER.createObjectNode();
+            job.put("id", jobId);
+            args.forEach(job.putArray("args")::add);
+
+            try {
+                stdin.write(job.toString());
+                stdin.newLine();
+                stdin.flush();
+            } catch (IOException e) {
+                throw new WorkerExitedException("KCC worker " + id + " is not accepting jobs: " + e.getMessage());
+            }
+
+            JsonNode response = next(timeout);
+            if (response.path("id").asLong() != jobId) {
+                throw new IOException("KCC worker " + id + " answered the wrong job: " + response);
+            }
+            return new Result(response.path("exit").asInt(1), response.path("error").asText(""));
+        }
+
+        JsonNode next(Duration wait) throws IOException {
+            Optional<JsonNode> response;
+            try {
+                response = responses.poll(wait.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for KCC worker " + id);
+            }
+
+            if (response == null) {
+                throw new IOException(String.format("KCC worker %d did not answer within %d seconds", id, wait.toSeconds()));
+            }
+            if (response.isEmpty()) {
+                throw new WorkerExitedException(String.format("KCC worker %d exited%s", id,
+                        process.isAlive() ? "" : " with code " + process.exitValue()));
+            }
+            return response.get();
+        }
+
+        /**
+         * Asks the worker to finish by closing its input, killing it if it
+         * does not exit promptly.
+         */
+        void shutdown() {
+            try {
+                stdin.close();
+                if (process.waitFor(5, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (IOException e) {
+                KccWorkerPool.log.debug("Failed to close KCC worker {} input", id, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            kill();
+        }
+
+        void kill() {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        private void readResponses() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        responses.add(Optional.of(KccWorkerPool.MAPPER.readTree(line)));
+                    } catch (IOException e) {
+                        KccWorkerPool.log.debug("KCC worker {}: {}", id, line);
+                    }
+                }
+            } catch (IOException e) {
+                KccWorkerPool.log.debug("Lost output of KCC worker {}", id, e);
+            } finally {
+                responses.add(Optional.empty());
+            }
+        }
+
+        private void drainErrors() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    KccWorkerPool.log.debug("KCC worker {}: {}", id, line);
+                }
+            } catch (IOException e) {
+                KccWorkerPool.log.debug("Lost error output of KCC worker {}", id, e);
+            }
+        }
+
+        private void daemon(String name, Runnable task) {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+    }
+
+}
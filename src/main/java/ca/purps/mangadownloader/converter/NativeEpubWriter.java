@@ -0,0 +1,348 @@
+package ca.purps.mangadownloader.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.utility.ZipEntries;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Turns a chapter CBZ into a fixed-layout EPUB without leaving the JVM. Pages
+ * are copied across in name order, each wrapped in an XHTML page sized to the
+ * image, and the OPF with its manifest, spine and Calibre series metadata is
+ * written last from what was collected on the way, so every page is read
+ * once and the EPUB is written once. Images stay stored, never recompressed.
+ * <p>
+ * No image processing happens here; cropping, splitting and colour work are
+ * what the KCC backend is for.
+ */
+@Slf4j
+class NativeEpubWriter {
+
+    private static final String TIMESTAMP = "0101-01-01T00:00:00+00:00";
+
+    private static final Map<String, String> MEDIA_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "avif", "image/avif");
+
+    private record Page(int number, String image, String mediaType, int width, int height) {
+
+        boolean isSized() {
+            return width > 0 && height > 0;
+        }
+
+        String id() {
+            return String.format("page-%03d", number);
+        }
+
+        String xhtml() {
+            return String.format("Text/page-%03d.xhtml", number);
+        }
+
+    }
+
+    private final Chapter chapter;
+
+    NativeEpubWriter(Chapter chapter) {
+        this.chapter = chapter;
+    }
+
+    void write(Path cbz, Path epub) throws IOException {
+        Path temp = Files.createTempFile(epub.getParent(), ".epub-", ".tmp");
+        try {
+            try (ZipFile source = new ZipFile(cbz.toFile());
+                    ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(temp))) {
+                writeMimetype(zos);
+                writeText(zos, "META-INF/container.xml", container());
+
+                Page cover = writeCover(zos);
+                List<Page> pages = writePages(source, zos);
+                if (pages.isEmpty()) {
+                    throw new IOException("No pages found in " + cbz);
+                }
+
+                writeText(zos, "OEBPS/toc.ncx", ncx(pages));
+                writeText(zos, "OEBPS/content.opf", opf(cover, pages));
+            }
+            Files.move(temp, epub, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private List<Page> writePages(ZipFile source, ZipOutputStream zos) throws IOException {
+        List<? extends ZipEntry> entries = source.stream()
+                .filter(entry -> !entry.isDirectory() && NativeEpubWriter.MEDIA_TYPES.containsKey(extension(entry.getName())))
+                .sorted(Comparator.comparing(ZipEntry::getName))
+                .toList();
+
+        List<Page> pages = new ArrayList<>(entries.size());
+        for (ZipEntry entry : entries) {
+            byte[] bytes;
+            try (InputStream in = source.getInputStream(entry)) {
+                bytes = in.readAllBytes();
+            }
+
+            int number = pages.size() + 1;
+            String extension = extension(entry.getName());
+            String image = String.format("Images/%03d.%s", number, extension);
+            int[] size = dimensions(bytes);
+            if (size[0] == 0) {
+                NativeEpubWriter.log.debug("Could not read the size of {} in {}, leaving its page unsized", entry.getName(), chapter.getName());
+            }
+            Page page = new Page(number, image, NativeEpubWriter.MEDIA_TYPES.get(extension), size[0], size[1]);
+
+            writeImage(zos, "OEBPS/" + image, bytes);
+            writeText(zos, "OEBPS/" + page.xhtml(), xhtml("Page " + number, "../" + image, page.width(), page.height()));
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    private Page writeCover(ZipOutputStream zos) {
+        byte[] original = chapter.getSeries().getCoverBytes();
+        if (original == null) {
+            return null;
+        }
+        String format = format(original);
+        if (format == null) {
+            NativeEpubWriter.log.debug("Could not read the cover of {}, leaving it out", chapter.getName());
+            return null;
+        }
+
+        try {
+            // Formats readers may not know, such as BMP, are re-encoded as PNG
+            byte[] bytes = EPubConverter.stampCover(chapter, NativeEpubWriter.MEDIA_TYPES.containsKey(format) ? format : "png");
+            String stamped = format(bytes);
+            if (stamped == null || !NativeEpubWriter.MEDIA_TYPES.containsKey(stamped)) {
+                NativeEpubWriter.log.debug("Could not re-encode the {} cover of {}, leaving it out", format, chapter.getName());
+                return null;
+            }
+
+            int[] size = dimensions(bytes);
+            Page cover = new Page(0, "Images/cover." + stamped, NativeEpubWriter.MEDIA_TYPES.get(stamped), size[0], size[1]);
+
+            writeImage(zos, "OEBPS/" + cover.image(), bytes);
+            writeText(zos, "OEBPS/Text/cover.xhtml", xhtml("Cover", "../" + cover.image(), cover.width(), cover.height()));
+            return cover;
+        } catch (IOException e) {
+            NativeEpubWriter.log.warn("Failed to add cover to {}, continuing without one", chapter.getName(), e);
+            return null;
+        }
+    }
+
+    private String opf(Page cover, List<Page> pages) {
+        StringBuilder opf = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<package xmlns=\"http://www.idpf.org/2007/opf\" unique-identifier=\"uuid_id\" version=\"2.0\">\n")
+                .append("  <metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:opf=\"http://www.idpf.org/2007/opf\">\n")
+                .append("    <dc:identifier opf:scheme=\"uuid\" id=\"uuid_id\">").append(UUID.randomUUID()).append("</dc:identifier>\n")
+                .append("    <dc:title>").append(escape(EPubConverter.title(chapter))).append("</dc:title>\n");
+
+        for (String author : chapter.getSeries().getAuthors()) {
+            opf.append("    <dc:creator opf:file-as=\"").append(escape(author)).append("\" opf:role=\"aut\">")
+                    .append(escape(author)).append("</dc:creator>\n");
+        }
+
+        opf.append("    <dc:date>").append(NativeEpubWriter.TIMESTAMP).append("</dc:date>\n")
+                .append("    <dc:description>").append(escape(chapter.getDescription())).append("</dc:description>\n")
+                .append("    <dc:language>eng</dc:language>\n");
+        if (cover != null) {
+            meta(opf, "cover", "cover");
+        }
+        meta(opf, "calibre:series", chapter.getSeries().getTitle());
+        meta(opf, "calibre:series_index", String.valueOf(chapter.getSeriesIndex()));
+        meta(opf, "calibre:timestamp", NativeEpubWriter.TIMESTAMP);
+        meta(opf, "calibre:title_sort", chapter.getName());
+        meta(opf, "book-type", "comic");
+        meta(opf, "fixed-layout", "true");
+        pages.stream()
+                .filter(Page::isSized)
+                .findFirst()
+                .ifPresent(sized -> meta(opf, "original-resolution", sized.width() + "x" + sized.height()));
+        opf.append("  </metadata>\n");
+
+        opf.append("  <manifest>\n");
+        item(opf, "ncx", "toc.ncx", "application/x-dtbncx+xml");
+        if (cover != null) {
+            item(opf, "cover", cover.image(), cover.mediaType());
+            item(opf, "cover-page", "Text/cover.xhtml", "application/xhtml+xml");
+        }
+        for (Page page : pages) {
+            item(opf, page.id(), page.xhtml(), "application/xhtml+xml");
+            item(opf, "image-" + page.id(), page.image(), page.mediaType());
+        }
+        opf.append("  </manifest>\n");
+
+        opf.append("  <spine toc=\"ncx\">\n");
+        if (cover != null) {
+            opf.append("    <itemref idref=\"cover-page\" linear=\"no\"/>\n");
+        }
+        for (Page page : pages) {
+            opf.append("    <itemref idref=\"").append(page.id()).append("\"/>\n");
+        }
+        opf.append("  </spine>\n");
+
+        if (cover != null) {
+            opf.append("  <guide>\n    <reference type=\"cover\" title=\"Cover\" href=\"Text/cover.xhtml\"/>\n  </guide>\n");
+        }
+        return opf.append("</package>\n").toString();
+    }
+
+    private String ncx(List<Page> pages) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\">\n"
+                + "  <head>\n    <meta name=\"dtb:uid\" content=\"" + escape(chapter.getUrl()) + "\"/>\n"
+                + "    <meta name=\"dtb:depth\" content=\"1\"/>\n  </head>\n"
+                + "  <docTitle><text>" + escape(EPubConverter.title(chapter)) + "</text></docTitle>\n"
+                + "  <navMap>\n    <navPoint id=\"chapter\" playOrder=\"1\">\n"
+                + "      <navLabel><text>" + escape(chapter.getName()) + "</text></navLabel>\n"
+                + "      <content src=\"" + pages.get(0).xhtml() + "\"/>\n"
+                + "    </navPoint>\n  </navMap>\n</ncx>\n";
+    }
+
+    private static String container() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">\n"
+                + "  <rootfiles>\n"
+                + "    <rootfile full-path=\"OEBPS/content.opf\" media-type=\"application/oebps-package+xml\"/>\n"
+                + "  </rootfiles>\n</container>\n";
+    }
+
+    /**
+     * Wraps {@code image} in a page. EPUB 2 content documents must be XHTML
+     * 1.1, so the page carries that DOCTYPE rather than the HTML5 one. The
+     * viewport is left out when the image size could not be read, so readers
+     * fit the page instead of sizing it to nothing.
+     */
+    private static String xhtml(String title, String image, int width, int height) {
+        String viewport = width > 0 && height > 0
+                ? "  <meta name=\"viewport\" content=\"width=" + width + ", height=" + height + "\"/>\n"
+                : "";
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.1//EN\" \"http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd\">\n"
+                + "<html xmlns=\"http://www.w3.org/1999/xhtml\">\n"
+                + "<head>\n  <title>" + escape(title) + "</title>\n"
+                + viewport
+                + "  <style type=\"text/css\">body { margin: 0; padding: 0; } img { width: 100%; height: 100%; object-fit: contain; }</style>\n"
+                + "</head>\n"
+                + "<body><div><img src=\"" + image + "\" alt=\"" + escape(title) + "\"/></div></body>\n"
+                + "</html>\n";
+    }
+
+    private static void meta(StringBuilder opf, String name, String content) {
+        opf.append("    <meta name=\"").append(name).append("\" content=\"").append(escape(content)).append("\"/>\n");
+    }
+
+    private static void item(StringBuilder opf, String id, String href, String mediaType) {
+        opf.append("    <item id=\"").append(id).append("\" href=\"").append(href)
+                .append("\" media-type=\"").append(mediaType).append("\"/>\n");
+    }
+
+    /**
+     * The mimetype entry must come first and be stored, so readers can sniff
+     * the container type from a fixed offset.
+     */
+    private static void writeMimetype(ZipOutputStream zos) throws IOException {
+        byte[] bytes = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        ZipEntry entry = new ZipEntry("mimetype");
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+
+        zos.putNextEntry(entry);
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+
+    private static void writeImage(ZipOutputStream zos, String name, byte[] bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        zos.putNextEntry(ZipEntries.create(name, bytes.length, crc.getValue()));
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+
+    private static void writeText(ZipOutputStream zos, String name, String text) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(text.getBytes(StandardCharsets.UTF_8));
+        zos.closeEntry();
+    }
+
+    /**
+     * Reads the width and height from the image header without decoding the
+     * pixels. Returns zeros when the format is not understood, such as AVIF,
+     * which ImageIO cannot read.
+     */
+    private static int[] dimensions(byte[] bytes) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return new int[] { 0, 0 };
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[] { reader.getWidth(0), reader.getHeight(0) };
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return new int[] { 0, 0 };
+        }
+    }
+
+    private static String format(byte[] bytes) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            String format = readers.next().getFormatName().toLowerCase(Locale.ROOT);
+            return "jpeg".equals(format) ? "jpg" : format;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String extension(String name) {
+        return name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+}
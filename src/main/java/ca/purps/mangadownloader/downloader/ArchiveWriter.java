@@ -0,0 +1,322 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import ca.purps.mangadownloader.exception.DownloadException;
+import ca.purps.mangadownloader.utility.ZipEntries;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the pages of one chapter straight into its CBZ as their bodies
+ * arrive. The page that is next in order is streamed into the archive
+ * directly; pages that finish early are held until their turn, in memory up
+ * to {@code bufferBytes} and in a spill file beyond that. Callers never wait
+ * on each other, so a slow page only delays the archive, not the downloads
+ * behind it.
+ * <p>
+ * Image pages are stored uncompressed (see {@link ZipEntries}), and a stored
+ * entry must declare its size and CRC before its data. Those pages are
+ * therefore always read in full, summing the CRC as they stream into the
+ * buffer, and written from there; only deflated entries stream straight
+ * through.
+ * <p>
+ * A zip entry cannot be taken back, so once a page fails part way through
+ * being written the archive is marked broken and every later write fails.
+ */
+@Slf4j
+class ArchiveWriter implements AutoCloseable {
+
+    @FunctionalInterface
+    private interface EntryBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private interface Page extends EntryBody {
+        long size();
+
+        long length();
+
+        long crc();
+
+        void discard();
+    }
+
+    private final Path archivePath;
+    private final Path spillDirectory;
+    private final int pageCount;
+    private final long bufferBytes;
+
+    private final ZipOutputStream zos;
+    private final Map<Integer, NamedPage> pending = new HashMap<>();
+
+    private int nextIndex = 1;
+    private boolean writing;
+    private boolean broken;
+    private long bufferedBytes;
+
+    private record NamedPage(String name, Page page) {
+    }
+
+    ArchiveWriter(Path archivePath, int pageCount, long bufferBytes) throws IOException {
+        this.archivePath = archivePath;
+        this.spillDirectory = archivePath.getParent();
+        this.pageCount = pageCount;
+        this.bufferBytes = bufferBytes;
+        this.zos = new ZipOutputStream(Files.newOutputStream(archivePath));
+    }
+
+    /**
+     * Adds page {@code index} (1-based) under {@code name}. Returns once the
+     * body has been fully read, either into the archive or into the buffer.
+     */
+    void write(int index, String name, InputStream body) throws IOException {
+        boolean direct;
+        synchronized (this) {
+            checkUsable();
+            direct = index == nextIndex && !writing && !ZipEntries.isStored(name);
+            if (direct) {
+                writing = true;
+            }
+        }
+
+        if (direct) {
+            writeEntry(new ZipEntry(name), body::transferTo);
+            synchronized (this) {
+                nextIndex++;
+            }
+            drain();
+            return;
+        }
+
+        Page page = buffer(index, body);
+        boolean claimed;
+        synchronized (this) {
+            if (broken) {
+                release(page);
+                checkUsable();
+            }
+            pending.put(index, new NamedPage(name, page));
+            claimed = index == nextIndex && !writing;
+            if (claimed) {
+                writing = true;
+            }
+        }
+
+        if (claimed) {
+            drain();
+        }
+    }
+
+    /**
+     * Closes the archive once every page has been written.
+     */
+    Path finish() throws IOException {
+        synchronized (this) {
+            checkUsable();
+            if (nextIndex != pageCount + 1) {
+                throw new DownloadException(String.format("Archive %s is missing pages, wrote %d of %d",
+                        archivePath, nextIndex - 1, pageCount));
+            }
+        }
+        zos.close();
+        ArchiveWriter.log.debug("Created archive: {}", archivePath);
+        return archivePath;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            pending.values().forEach(named -> release(named.page()));
+            pending.clear();
+            if (nextIndex == pageCount + 1 && !broken) {
+                return;
+            }
+            broken = true;
+        }
+
+        try {
+            zos.close();
+        } catch (IOException e) {
+            ArchiveWriter.log.debug("Failed to close incomplete archive: {}", archivePath, e);
+        }
+        try {
+            Files.deleteIfExists(archivePath);
+        } catch (IOException e) {
+            ArchiveWriter.log.warn("Failed to delete incomplete archive: {}", archivePath, e);
+        }
+    }
+
+    private void drain() throws IOException {
+        while (true) {
+            NamedPage named;
+            synchronized (this) {
+                named = pending.remove(nextIndex);
+                if (named == null) {
+                    writing = false;
+                    return;
+                }
+            }
+
+            try {
+                Page page = named.page();
+                writeEntry(ZipEntries.create(named.name(), page.length(), page.crc()), page::writeTo);
+            } finally {
+                release(named.page());
+            }
+            synchronized (this) {
+                nextIndex++;
+            }
+        }
+    }
+
+    private void writeEntry(ZipEntry entry, EntryBody body) throws IOException {
+        try {
+            zos.putNextEntry(entry);
+            body.writeTo(zos);
+            zos.closeEntry();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                broken = true;
+                writing = false;
+            }
+            throw e;
+        }
+    }
+
+    private Page buffer(int index, InputStream body) throws IOException {
+        byte[] chunk = new byte[8192];
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+
+        try {
+            int read;
+            while ((read = body.read(chunk)) != -1) {
+                if (!reserve(read)) {
+                    return spill(index, memory, chunk, read, body, crc);
+                }
+                memory.write(chunk, 0, read);
+                crc.update(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            unreserve(memory.size());
+            throw e;
+        }
+
+        byte[] bytes = memory.toByteArray();
+        long checksum = crc.getValue();
+        return new Page() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(bytes);
+            }
+
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public long length() {
+                return bytes.length;
+            }
+
+            @Override
+            public long crc() {
+                return checksum;
+            }
+
+            @Override
+            public void discard() {
+            }
+        };
+    }
+
+    private Page spill(int index, ByteArrayOutputStream memory, byte[] chunk, int read, InputStream body, CRC32 crc) throws IOException {
+
+        Path spillPath = Files.createTempFile(spillDirectory, String.format(".%03d-", index), ".spill");
+        long written = memory.size();
+        try (OutputStream out = Files.newOutputStream(spillPath)) {
+            memory.writeTo(out);
+            do {
+                out.write(chunk, 0, read);
+                crc.update(chunk, 0, read);
+                written += read;
+            } while ((read = body.read(chunk)) != -1);
+        } catch (IOException e) {
+            Files.deleteIfExists(spillPath);
+            throw e;
+        } finally {
+            unreserve(memory.size());
+            memory.reset();
+        }
+
+        ArchiveWriter.log.debug("Spilled page {} of {} to disk", index, archivePath.getFileName());
+
+        long length = written;
+        long checksum = crc.getValue();
+        return new Page() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Files.copy(spillPath, out);
+            }
+
+            @Override
+            public long size() {
+                return 0;
+            }
+
+            @Override
+            public long length() {
+                return length;
+            }
+
+            @Override
+            public long crc() {
+                return checksum;
+            }
+
+            @Override
+            public void discard() {
+                try {
+                    Files.deleteIfExists(spillPath);
+                } catch (IOException e) {
+                    ArchiveWriter.log.warn("Failed to delete spill file: {}", spillPath, e);
+                }
+            }
+        };
+    }
+
+    private synchronized boolean reserve(long bytes) {
+        if (bufferedBytes + bytes > bufferBytes) {
+            return false;
+        }
+        bufferedBytes += bytes;
+        return true;
+    }
+
+    private synchronized void unreserve(long bytes) {
+        bufferedBytes -= bytes;
+    }
+
+    private void release(Page page) {
+        unreserve(page.size());
+        page.discard();
+    }
+
+    private void checkUsable() {
+        if (broken) {
+            throw new DownloadException("Archive is incomplete after an earlier write failure: " + archivePath);
+        }
+    }
+
+}
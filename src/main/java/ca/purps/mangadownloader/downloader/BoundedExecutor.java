@@ -0,0 +1,109 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every task on its own thread from {@code delegate} but lets at most
+ * {@code permits} of them past the gate at once. Meant for virtual threads,
+ * where a task parked on the semaphore costs a few hundred bytes instead of a
+ * platform thread stack.
+ * <p>
+ * A task parked at the gate is never dropped. {@link #shutdownNow()} hands
+ * it back with the tasks that never started, and a task whose wait is
+ * interrupted for any other reason runs anyway, with the interrupt still
+ * set, so whatever waits on it completes.
+ */
+class BoundedExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final Set<Gated> waiting = ConcurrentHashMap.newKeySet();
+
+    BoundedExecutor(ExecutorService delegate, int permits) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(Math.max(1, permits));
+    }
+
+    /**
+     * Wraps one task. Whoever removes it from {@code waiting} owns it: the
+     * thread that got past the gate runs it, {@link #shutdownNow()} returns
+     * it.
+     */
+    private class Gated implements Runnable {
+
+        private final Runnable command;
+
+        Gated(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            waiting.add(this);
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiting.remove(this)) {
+                    command.run();
+                }
+                return;
+            }
+            try {
+                if (waiting.remove(this)) {
+                    command.run();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(new Gated(command));
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        for (Gated gated : waiting) {
+            if (waiting.remove(gated)) {
+                pending.add(gated.command);
+            }
+        }
+        for (Runnable runnable : delegate.shutdownNow()) {
+            pending.add(runnable instanceof Gated gated ? gated.command : runnable);
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+}
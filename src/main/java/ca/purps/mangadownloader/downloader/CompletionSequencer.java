@@ -0,0 +1,59 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Reorder buffer between chapter downloads and whatever comes after them.
+ * Each chapter takes a ticket when it is submitted and hands its result back
+ * under that ticket when it finishes. In ordered mode results are released in
+ * ticket order, held back until every earlier ticket is in; otherwise they
+ * are released as they arrive. A ticket completed without a value, such as a
+ * skipped or failed chapter, only unblocks the ones behind it.
+ */
+class CompletionSequencer<T> {
+
+    private final boolean ordered;
+    private final Consumer<T> consumer;
+
+    private final Map<Integer, Optional<T>> held = new HashMap<>();
+
+    private int issued;
+    private int released;
+
+    CompletionSequencer(boolean ordered, Consumer<T> consumer) {
+        this.ordered = ordered;
+        this.consumer = consumer;
+    }
+
+    synchronized int ticket() {
+        return issued++;
+    }
+
+    synchronized void complete(int ticket, T value) {
+        if (!ordered) {
+            released++;
+            if (value != null) {
+                consumer.accept(value);
+            }
+            return;
+        }
+
+        held.put(ticket, Optional.ofNullable(value));
+        Optional<T> next;
+        while ((next = held.remove(released)) != null) {
+            released++;
+            next.ifPresent(consumer);
+        }
+    }
+
+    /**
+     * Number of results waiting on an earlier ticket.
+     */
+    synchronized int getHeld() {
+        return held.size();
+    }
+
+}
@@ -0,0 +1,55 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ca.purps.mangadownloader.config.ExecutionMode;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the executors the downloader runs blocking HTTP calls on. In
+ * {@link ExecutionMode#VIRTUAL} mode each task gets a virtual thread and
+ * concurrency is capped by a semaphore rather than by the pool size. Virtual
+ * threads are looked up reflectively so the build still targets Java 17; on
+ * an older runtime the fixed platform pool is used instead.
+ */
+@Slf4j
+@UtilityClass
+public class DownloadExecutors {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    public static boolean isVirtualAvailable() {
+        return DownloadExecutors.NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    public static ExecutorService create(ExecutionMode mode, int concurrency) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            if (DownloadExecutors.isVirtualAvailable()) {
+                return new BoundedExecutor(newVirtualThreadPerTaskExecutor(), concurrency);
+            }
+            DownloadExecutors.log.warn("Virtual threads need Java 21 or later (running {}), using a fixed thread pool",
+                    Runtime.version());
+        }
+        return Executors.newFixedThreadPool(concurrency);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) DownloadExecutors.NEW_VIRTUAL_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
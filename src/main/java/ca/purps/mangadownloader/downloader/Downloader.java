@@ -8,4 +8,8 @@ public interface Downloader {
 
     Path download(MangaEntity series);
 
+    default boolean supportsStreaming() {
+        return false;
+    }
+
 }
\ No newline at end of file
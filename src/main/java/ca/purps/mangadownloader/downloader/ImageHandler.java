@@ -0,0 +1,24 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.io.IOException;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Consumes the response for one image. Called again on every retry, so
+ * {@link #prepare(Request.Builder)} can adjust each attempt's request.
+ */
+@FunctionalInterface
+interface ImageHandler<T> {
+
+    T handle(Response response) throws IOException;
+
+    default Request.Builder prepare(Request.Builder request) {
+        return request;
+    }
+
+    default void rejected(Response response) throws IOException {
+    }
+
+}
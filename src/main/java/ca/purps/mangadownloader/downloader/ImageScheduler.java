@@ -0,0 +1,200 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shares a fixed number of image slots between every chapter in flight. Each
+ * chapter submits its pages to its own {@link Lane}; lanes that already hold
+ * slots are served round-robin, and a waiting lane is only let in once no
+ * started lane has work left to hand out. Chapters therefore finish one after
+ * another instead of all crawling along together, without leaving slots idle.
+ * Waiting lanes are let in by priority, lowest first, and in the order they
+ * were opened when priorities tie.
+ * <p>
+ * Nothing blocks waiting for a chapter: every task completes its own future
+ * and chapters compose on those.
+ */
+@Slf4j
+class ImageScheduler {
+
+    private final Executor executor;
+    private final int slots;
+
+    private final Deque<Lane> active = new ArrayDeque<>();
+    private final Queue<Lane> waiting = new PriorityQueue<>(
+            Comparator.comparingLong((Lane lane) -> lane.priority).thenComparingLong(lane -> lane.sequence));
+
+    private int running;
+    private long opened;
+
+    private record Task(Runnable work, CompletableFuture<?> future) {
+    }
+
+    ImageScheduler(Executor executor, int slots) {
+        this.executor = executor;
+        this.slots = Math.max(1, slots);
+    }
+
+    synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * Number of tasks submitted but not yet handed to the executor.
+     */
+    synchronized int getQueued() {
+        return active.stream().mapToInt(lane -> lane.tasks.size()).sum()
+                + waiting.stream().mapToInt(lane -> lane.tasks.size()).sum();
+    }
+
+    Lane openLane(String name) {
+        return openLane(name, 0);
+    }
+
+    synchronized Lane openLane(String name, long priority) {
+        return new Lane(name, priority, opened++);
+    }
+
+    class Lane {
+
+        private final String name;
+        private final long priority;
+        private final long sequence;
+        private final Deque<Task> tasks = new ArrayDeque<>();
+
+        private boolean queued;
+        private boolean started;
+        private boolean closed;
+
+        private Lane(String name, long priority, long sequence) {
+            this.name = name;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<T> task) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            enqueue(this, new Task(() -> {
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }, future));
+            return future;
+        }
+
+        /**
+         * Marks the lane as complete once every page has been submitted, so it
+         * can give up its place when its last task starts.
+         */
+        void close() {
+            synchronized (ImageScheduler.this) {
+                closed = true;
+            }
+            dispatch();
+        }
+
+        private boolean isDone() {
+            return closed && tasks.isEmpty();
+        }
+
+    }
+
+    private void enqueue(Lane lane, Task task) {
+        synchronized (this) {
+            lane.tasks.add(task);
+            if (!lane.queued) {
+                lane.queued = true;
+                (lane.started ? active : waiting).add(lane);
+            }
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                if (running >= slots) {
+                    return;
+                }
+                task = nextTask();
+                if (task == null) {
+                    return;
+                }
+                running++;
+            }
+
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.work().run();
+                    } finally {
+                        release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                ImageScheduler.log.debug("Image executor rejected task", e);
+                synchronized (this) {
+                    running--;
+                }
+                task.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void release() {
+        synchronized (this) {
+            running--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Keeps a lane in rotation until it is done. A done lane that is handed
+     * more work later, such as a retry, goes straight back to the started
+     * lanes instead of queueing behind chapters that have not begun.
+     */
+    private void requeue(Lane lane) {
+        if (lane.isDone()) {
+            lane.queued = false;
+        } else {
+            active.add(lane);
+        }
+    }
+
+    private Task nextTask() {
+        for (int i = active.size(); i > 0; i--) {
+            Lane lane = active.poll();
+            Task task = lane.tasks.poll();
+            requeue(lane);
+            if (task != null) {
+                return task;
+            }
+        }
+
+        Lane lane;
+        while ((lane = waiting.poll()) != null) {
+            ImageScheduler.log.debug("Starting images of chapter: {}", lane.name);
+            lane.started = true;
+            Task task = lane.tasks.poll();
+            requeue(lane);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+}
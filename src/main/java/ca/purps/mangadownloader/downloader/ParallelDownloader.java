@@ -2,26 +2,41 @@ package ca.purps.mangadownloader.downloader;
 
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.config.ArchiveMode;
+import ca.purps.mangadownloader.config.SchedulingPolicy;
+import ca.purps.mangadownloader.converter.ConversionPipeline;
 import ca.purps.mangadownloader.converter.EPubConverter;
 import ca.purps.mangadownloader.exception.DownloadException;
+import ca.purps.mangadownloader.http.HttpClientFactory;
+import ca.purps.mangadownloader.http.HttpStatusException;
+import ca.purps.mangadownloader.http.RetryPolicy;
+import ca.purps.mangadownloader.metrics.Counter;
+import ca.purps.mangadownloader.metrics.Histogram;
+import ca.purps.mangadownloader.metrics.Metrics;
 import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.ChapterStream;
 import ca.purps.mangadownloader.model.MangaEntity;
 import ca.purps.mangadownloader.model.Series;
+import ca.purps.mangadownloader.store.ImageStore;
 import ca.purps.mangadownloader.tracker.Tracker;
+import ca.purps.mangadownloader.utility.ZipEntries;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -30,28 +45,54 @@ import okhttp3.Response;
 @Slf4j
 public class ParallelDownloader implements Downloader, AutoCloseable {
 
+    private static final Histogram CHAPTER_SECONDS = Metrics.histogram("manga_stage_seconds", "Time spent per pipeline stage", "stage", "chapter");
+    private static final Histogram IMAGE_SECONDS = Metrics.histogram("manga_stage_seconds", "Time spent per pipeline stage", "stage", "image");
+    private static final Histogram ARCHIVE_SECONDS = Metrics.histogram("manga_stage_seconds", "Time spent per pipeline stage", "stage", "archive");
+
+    private static final Counter CHAPTERS_DOWNLOADED = Metrics.counter("manga_chapters_total", "Chapters processed", "result", "downloaded");
+    private static final Counter CHAPTERS_FAILED = Metrics.counter("manga_chapters_total", "Chapters processed", "result", "failed");
+    private static final Counter IMAGES_DOWNLOADED = Metrics.counter("manga_images_total", "Images processed", "result", "downloaded");
+    private static final Counter IMAGES_REUSED = Metrics.counter("manga_images_total", "Images processed", "result", "reused");
+    private static final Counter IMAGES_FAILED = Metrics.counter("manga_images_total", "Images processed", "result", "failed");
+
     private final AppConfig config;
     private final OkHttpClient httpClient;
+    private final RetryPolicy retryPolicy;
 
-    private final ExecutorService chapterExecutor;
     private final ExecutorService imageExecutor;
+    private final ImageScheduler scheduler;
 
     private final EPubConverter converter;
+    private final ImageStore imageStore;
     private final Tracker tracker;
 
     public ParallelDownloader(AppConfig config, Tracker tracker) {
+        this(config, tracker, new HttpClientFactory(config).getClient());
+    }
+
+    public ParallelDownloader(AppConfig config, Tracker tracker, OkHttpClient httpClient) {
+        this(config, tracker, httpClient, new RetryPolicy(config));
+    }
+
+    public ParallelDownloader(AppConfig config, Tracker tracker, OkHttpClient httpClient, RetryPolicy retryPolicy) {
         this.config = config;
         this.tracker = tracker;
+        this.httpClient = httpClient;
+        this.retryPolicy = retryPolicy;
 
         this.converter = new EPubConverter(config);
+        this.imageStore = new ImageStore(config);
 
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.imageExecutor = DownloadExecutors.create(config.getExecutionMode(), config.getMaxConcurrentDownloads());
+        this.scheduler = new ImageScheduler(imageExecutor, config.getMaxConcurrentDownloads());
+
+        Metrics.gauge("manga_image_queue_depth", "Image downloads waiting for a slot", scheduler::getQueued);
+        Metrics.gauge("manga_image_slots_busy", "Image slots currently in use", scheduler::getRunning);
+    }
 
-        this.chapterExecutor = Executors.newFixedThreadPool(config.getMaxConcurrentDownloads());
-        this.imageExecutor = Executors.newFixedThreadPool(config.getMaxConcurrentDownloads());
+    @Override
+    public boolean supportsStreaming() {
+        return true;
     }
 
     @Override
@@ -59,6 +100,9 @@ public class ParallelDownloader implements Downloader, AutoCloseable {
         if (entity instanceof Series series) {
             if (tracker.isSeriesDownloaded(series)) {
                 ParallelDownloader.log.info("Series already downloaded: {}", series.getTitle());
+                if (series.getChapterStream() != null) {
+                    series.getChapterStream().close();
+                }
                 return config.getDownloadPath().resolve(sanitize(series.getTitle()));
             }
 
@@ -71,8 +115,16 @@ public class ParallelDownloader implements Downloader, AutoCloseable {
             Path seriesPath = createDirectory(config.getDownloadPath().resolve(sanitize(chapter.getSeries().getId() + "_" + chapter.getSeries().getTitle())));
             ParallelDownloader.log.debug("Created series directory: {}", seriesPath);
 
-            download(chapter, seriesPath, config.isConvertToEpub(), config.getSkipExisting());
+            download(chapter, seriesPath).join();
 
+            if (config.getSkipExisting()) {
+                tracker.markChapterDownloaded(chapter);
+            }
+            if (config.isConvertToEpub()) {
+                converter.convertFromCBZ(List.of(chapter));
+            }
+
+            imageStore.logStats();
             return chapter.getArchivePath();
         }
 
@@ -85,135 +137,314 @@ public class ParallelDownloader implements Downloader, AutoCloseable {
         Path seriesPath = createDirectory(config.getDownloadPath().resolve(sanitize(series.getId() + "_" + series.getTitle())));
         ParallelDownloader.log.debug("Created series directory: {}", seriesPath);
 
-        List<Chapter> chapters = new ArrayList<>();
-
-        CompletableFuture.allOf(
-                series.getChapters()
-                        .stream()
-                        .map(chapter -> CompletableFuture.supplyAsync(
-                                () -> {
-                                    if (isChapterDownloaded(chapter)) {
-                                        return null;
-                                    }
-
-                                    download(chapter, seriesPath, false, false);
-                                    tracker.markChapterDownloaded(chapter);
-                                    return chapter;
-                                },
-                                chapterExecutor))
-                        .map(future -> future.thenApply(chapter -> {
-                            if (chapter != null && chapter.getArchivePath().toString().endsWith(".cbz")) {
-                                chapters.add(chapter);
-                            }
-                            return chapter;
-                        }))
-                        .toArray(CompletableFuture[]::new))
-                .join();
-
-        converter.convertFromCBZ(chapters);
+        try (ConversionPipeline conversion = converter.isEnabled()
+                ? new ConversionPipeline(converter, converter.getParallelism(), config.getConversionQueueSize())
+                : null) {
+
+            CompletionSequencer<Chapter> sequencer = new CompletionSequencer<>(
+                    config.getSchedulingPolicy() != SchedulingPolicy.SMALLEST_FIRST,
+                    chapter -> {
+                        tracker.markChapterDownloaded(chapter);
+                        if (conversion != null && chapter.getArchivePath().toString().endsWith(".cbz")) {
+                            conversion.submit(chapter);
+                        }
+                    });
+            Metrics.gauge("manga_chapters_held", "Finished chapters waiting on an earlier one", sequencer::getHeld);
+
+            downloadChapters(series, seriesPath, sequencer);
+            if (conversion != null) {
+                conversion.finish();
+            }
+        }
+
+        imageStore.flush();
+        imageStore.logStats();
 
         ParallelDownloader.log.info("Completed downloading series: {}", series.getTitle());
         return seriesPath;
     }
 
-    private void download(Chapter chapter, Path path, boolean shouldConvert, boolean shouldTrack) {
+    private void downloadChapters(Series series, Path seriesPath, CompletionSequencer<Chapter> sequencer) {
+        List<CompletableFuture<Chapter>> futures = new ArrayList<>();
+        Semaphore pending = new Semaphore(config.getMaxPendingChapters());
+
+        ChapterStream stream = series.getChapterStream();
+        try {
+            Iterator<Chapter> iterator = orderChapters(series, stream);
+            while (true) {
+                pending.acquireUninterruptibly();
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                futures.add(submitChapter(iterator.next(), seriesPath, sequencer)
+                        .whenComplete((chapter, e) -> pending.release()));
+            }
+        } finally {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Puts the chapters in the order the scheduling policy submits them.
+     * Oldest-first and smallest-first keep a chapter stream streaming, the
+     * latter reordering only within the pending window, while newest-first
+     * has to see the whole series before it knows where to start.
+     */
+    private Iterator<Chapter> orderChapters(Series series, ChapterStream stream) {
+        if (stream != null && config.getSchedulingPolicy() != SchedulingPolicy.NEWEST_FIRST) {
+            return stream;
+        }
+
+        List<Chapter> ordered = new ArrayList<>();
+        if (stream != null) {
+            stream.forEachRemaining(ordered::add);
+        } else {
+            ordered.addAll(series.getChapters());
+        }
+        ordered.sort(Comparator.comparingLong(this::priority));
+        return ordered.iterator();
+    }
+
+    private long priority(Chapter chapter) {
+        return switch (config.getSchedulingPolicy()) {
+            case OLDEST_FIRST -> chapter.getSeriesIndex();
+            case NEWEST_FIRST -> -chapter.getSeriesIndex();
+            case SMALLEST_FIRST -> chapter.getImageUrls().size();
+        };
+    }
+
+    private CompletableFuture<Chapter> submitChapter(Chapter chapter, Path seriesPath, CompletionSequencer<Chapter> sequencer) {
+        int ticket = sequencer.ticket();
+        if (isChapterDownloaded(chapter)) {
+            sequencer.complete(ticket, null);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return download(chapter, seriesPath)
+                .whenComplete((archivePath, e) -> sequencer.complete(ticket, e == null ? chapter : null))
+                .thenApply(archivePath -> chapter);
+    }
+
+    private CompletableFuture<Path> download(Chapter chapter, Path path) {
         String sanitizedName = sanitize(chapter.getId() + "_" + chapter.getName());
         ParallelDownloader.log.info("Downloading chapter: {} to {}", sanitizedName, path);
 
         Path chapterPath = createDirectory(path.resolve(sanitizedName));
         ParallelDownloader.log.debug("Created chapter directory: {}", chapterPath);
 
+        long start = System.nanoTime();
+        CompletableFuture<Path> archive;
         try {
-            final AtomicInteger index = new AtomicInteger(0);
+            archive = config.getArchiveMode() == ArchiveMode.DIRECT
+                    ? downloadToArchive(chapter, chapterPath)
+                    : downloadToFiles(chapter, chapterPath);
+        } catch (IOException e) {
+            archive = CompletableFuture.failedFuture(e);
+        }
 
-            CompletableFuture.allOf(
-                    chapter.getImageUrls()
-                            .stream()
-                            .map(url -> downloadImage(url, chapterPath, index.incrementAndGet()))
-                            .toArray(CompletableFuture[]::new))
-                    .join();
+        return archive.handle((archivePath, e) -> {
+            ParallelDownloader.CHAPTER_SECONDS.observeSince(start);
+            if (e != null) {
+                ParallelDownloader.CHAPTERS_FAILED.inc();
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof DownloadException downloadException) {
+                    throw downloadException;
+                }
+                throw new DownloadException(String.format("Failed to download chapter: %s", chapter.getName()), cause);
+            }
 
-            Path archivePath = createArchive(chapterPath);
+            ParallelDownloader.CHAPTERS_DOWNLOADED.inc();
             chapter.setArchivePath(archivePath);
-            cleanupImages(chapterPath);
-
             ParallelDownloader.log.info("Successfully downloaded chapter: {}", chapter.getName());
+            return archivePath;
+        });
+    }
 
-            if (shouldTrack) {
-                tracker.markChapterDownloaded(chapter);
-            }
+    private CompletableFuture<Path> downloadToFiles(Chapter chapter, Path chapterPath) {
+        List<String> imageUrls = chapter.getImageUrls();
+        ImageScheduler.Lane lane = scheduler.openLane(chapter.getName(), priority(chapter));
 
-            if (shouldConvert) {
-                converter.convertFromCBZ(List.of(chapter));
-            }
-        } catch (DownloadException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new DownloadException(String.format("Failed to download chapter: %s", chapter.getName()), e);
+        CompletableFuture<?>[] images = new CompletableFuture<?>[imageUrls.size()];
+        for (int i = 0; i < images.length; i++) {
+            images[i] = downloadImage(lane, imageUrls.get(i), chapterPath, i + 1);
         }
+        lane.close();
+
+        return CompletableFuture.allOf(images).thenApply(v -> {
+            try {
+                Path archivePath = createArchive(chapterPath);
+                cleanupImages(chapterPath);
+                return archivePath;
+            } catch (IOException e) {
+                throw new DownloadException("Failed to create archive: " + chapterPath, e);
+            }
+        });
     }
 
-    private CompletableFuture<Path> downloadImage(String url, Path destination, int index) {
-        return CompletableFuture.supplyAsync(() -> {
-            String fileExtension = sanitize(url.substring(url.lastIndexOf('.') + 1));
-            Path imagePath = destination.resolve(String.format("%03d.%s", index, fileExtension));
-            ParallelDownloader.log.debug("Downloading image: {} to {}", url, imagePath);
-
-            for (int attempt = 1; attempt <= config.getRetryAttempts(); attempt++) {
-                try {
-                    Request request = new Request.Builder()
-                            .url(url)
-                            .header("User-Agent", config.getUserAgent())
-                            .build();
-
-                    try (Response response = httpClient.newCall(request).execute()) {
-                        if (!response.isSuccessful()) {
-                            ParallelDownloader.log.warn("Failed to download image (attempt {}/{}): {} (Status code: {})",
-                                    attempt, config.getRetryAttempts(), url, response.code());
-                            throw new IOException("Failed to download image: " + response.code());
+    private CompletableFuture<Path> downloadToArchive(Chapter chapter, Path chapterPath) throws IOException {
+        List<String> imageUrls = chapter.getImageUrls();
+        Path archivePath = chapterPath.resolve(chapterPath.getFileName() + ".cbz");
+        ArchiveWriter writer = new ArchiveWriter(archivePath, imageUrls.size(), config.getArchiveBufferBytes());
+        ImageScheduler.Lane lane = scheduler.openLane(chapter.getName(), priority(chapter));
+
+        CompletableFuture<?>[] images = new CompletableFuture<?>[imageUrls.size()];
+        for (int i = 0; i < images.length; i++) {
+            String url = imageUrls.get(i);
+            int index = i + 1;
+            String name = imageFileName(url, index);
+            Optional<Path> stored = imageStore.lookup(url);
+            CompletableFuture<Boolean> fromStore = stored.isPresent()
+                    ? lane.submit(() -> writeStored(writer, index, name, stored.get()))
+                    : CompletableFuture.completedFuture(false);
+
+            images[i] = fromStore.thenCompose(written -> written
+                    ? CompletableFuture.completedFuture(name)
+                    : fetchImage(lane, url, response -> {
+                        if (!imageStore.isEnabled()) {
+                            writer.write(index, name, response.body().byteStream());
+                            return name;
                         }
+                        try (ImageStore.Recorder recorder = imageStore.record(url)) {
+                            writer.write(index, name, recorder.tee(response.body().byteStream()));
+                            recorder.commit();
+                        }
+                        return name;
+                    }));
+        }
+        lane.close();
 
-                        Files.copy(response.body().byteStream(), imagePath, StandardCopyOption.REPLACE_EXISTING);
-                        ParallelDownloader.log.debug("Successfully downloaded image: {}", url);
-                        return imagePath;
-                    }
-                } catch (Exception e) {
-                    if (attempt == config.getRetryAttempts()) {
-                        throw new DownloadException(String.format("Failed to download image after %d attempts: %s", attempt, url), e);
-                    }
-                    ParallelDownloader.log.debug("Retrying download after failure (attempt {}/{}): {}",
-                            attempt, config.getRetryAttempts(), url);
+        return CompletableFuture.allOf(images)
+                .thenApply(v -> {
                     try {
-                        Thread.sleep(config.getRetryDelayMs());
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new DownloadException("Download interrupted", ie);
+                        long start = System.nanoTime();
+                        Path finished = writer.finish();
+                        ParallelDownloader.ARCHIVE_SECONDS.observeSince(start);
+                        return finished;
+                    } catch (IOException e) {
+                        throw new DownloadException("Failed to finish archive: " + archivePath, e);
                     }
-                }
+                })
+                .whenComplete((path, e) -> writer.close());
+    }
+
+    private CompletableFuture<Path> downloadImage(ImageScheduler.Lane lane, String url, Path destination, int index) {
+        PartialImage image = new PartialImage(destination.resolve(imageFileName(url, index)));
+        if (image.isComplete()) {
+            ParallelDownloader.log.debug("Reusing image from an earlier run: {}", image.getTarget());
+            ParallelDownloader.IMAGES_REUSED.inc();
+            return CompletableFuture.completedFuture(image.getTarget());
+        }
+
+        Optional<Path> stored = imageStore.lookup(url);
+        if (stored.isPresent() && copyStored(stored.get(), image.getTarget())) {
+            ParallelDownloader.IMAGES_REUSED.inc();
+            imageStore.reused(stored.get());
+            return CompletableFuture.completedFuture(image.getTarget());
+        }
+
+        ParallelDownloader.log.debug("Downloading image: {} to {}", url, image.getTarget());
+        return fetchImage(lane, url, image).thenApply(path -> {
+            imageStore.put(url, path);
+            return path;
+        });
+    }
+
+    private boolean copyStored(Path blob, Path target) {
+        try {
+            Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            ParallelDownloader.log.debug("Stored image {} is unavailable, downloading instead", blob, e);
+            return false;
+        }
+    }
+
+    private boolean writeStored(ArchiveWriter writer, int index, String name, Path blob) {
+        InputStream in;
+        try {
+            in = Files.newInputStream(blob);
+        } catch (IOException e) {
+            ParallelDownloader.log.debug("Stored image {} is unavailable, downloading instead", blob, e);
+            return false;
+        }
+        try (in) {
+            writer.write(index, name, in);
+            ParallelDownloader.IMAGES_REUSED.inc();
+            imageStore.reused(blob);
+            return true;
+        } catch (IOException e) {
+            throw new DownloadException("Failed to archive stored image: " + blob, e);
+        }
+    }
+
+    private <T> CompletableFuture<T> fetchImage(ImageScheduler.Lane lane, String url, ImageHandler<T> handler) {
+        return retryPolicy.executeAsync(url, () -> lane.submit(() -> {
+            try {
+                return fetchImageOnce(url, handler);
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
+        })).handle((result, e) -> {
+            if (e == null) {
+                ParallelDownloader.IMAGES_DOWNLOADED.inc();
+                return result;
+            }
+            ParallelDownloader.IMAGES_FAILED.inc();
+            if (e instanceof DownloadException downloadException) {
+                throw downloadException;
+            }
+            throw new DownloadException(String.format("Failed to download image: %s", url), e);
+        });
+    }
 
-            throw new DownloadException("Failed to download image: " + url);
-        }, imageExecutor);
+    private <T> T fetchImageOnce(String url, ImageHandler<T> handler) throws IOException {
+        Request request = handler.prepare(new Request.Builder()
+                .url(url)
+                .header("User-Agent", config.getUserAgent()))
+                .build();
+
+        long start = System.nanoTime();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                ParallelDownloader.log.warn("Failed to download image: {} (Status code: {})", url, response.code());
+                handler.rejected(response);
+                throw HttpStatusException.from(response);
+            }
+
+            T result = handler.handle(response);
+            ParallelDownloader.IMAGE_SECONDS.observeSince(start);
+            ParallelDownloader.log.debug("Successfully downloaded image: {}", url);
+            return result;
+        }
+    }
+
+    private String imageFileName(String url, int index) {
+        String fileExtension = sanitize(url.substring(url.lastIndexOf('.') + 1));
+        return String.format("%03d.%s", index, fileExtension);
     }
 
     private Path createArchive(Path sourceDir) throws IOException {
         Path archivePath = sourceDir.resolve(sourceDir.getFileName() + ".cbz");
+        long start = System.nanoTime();
 
         try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archivePath))) {
             Files.walk(sourceDir)
                     .filter(path -> !Files.isDirectory(path) && !path.toString().endsWith(".cbz"))
+                    .filter(path -> !PartialImage.isWorkFile(path))
                     .forEach(path -> {
                         try {
-                            ZipEntry entry = new ZipEntry(sourceDir.relativize(path).toString());
-                            zos.putNextEntry(entry);
-                            Files.copy(path, zos);
-                            zos.closeEntry();
+                            ZipEntries.addFile(zos, sourceDir.relativize(path).toString(), path);
                         } catch (IOException e) {
                             throw new DownloadException("Failed to add file to archive: " + path, e);
                         }
                     });
         }
 
+        ParallelDownloader.ARCHIVE_SECONDS.observeSince(start);
         ParallelDownloader.log.debug("Created archive: {}", archivePath);
 
         return archivePath;
@@ -265,7 +496,7 @@ public class ParallelDownloader implements Downloader, AutoCloseable {
     }
 
     private boolean isChapterDownloaded(Chapter chapter) {
-        boolean downloaded = tracker.isChapterDownloaded(chapter);
+        boolean downloaded = chapter.isStub() || tracker.isChapterDownloaded(chapter);
         if (downloaded) {
             ParallelDownloader.log.info("Chapter already downloaded: {}", chapter.getName());
         }
@@ -274,12 +505,10 @@ public class ParallelDownloader implements Downloader, AutoCloseable {
 
     @Override
     public void close() {
-        chapterExecutor.shutdown();
         imageExecutor.shutdown();
+        imageStore.close();
+        converter.close();
         try {
-            if (!chapterExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
-                chapterExecutor.shutdownNow();
-            }
             if (!imageExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
                 imageExecutor.shutdownNow();
             }
@@ -0,0 +1,147 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Downloads one image into {@code NNN.ext.part} and renames it into place only
+ * once the body is complete. Bytes already on disk survive a dropped
+ * connection or a killed process; the next attempt asks for the rest with a
+ * {@code Range} request guarded by {@code If-Range}, so a changed image is sent
+ * whole instead of being spliced. An image that already exists is complete and
+ * is not requested again.
+ */
+@Slf4j
+class PartialImage implements ImageHandler<Path> {
+
+    static final String PART_SUFFIX = ".part";
+    static final String VALIDATOR_SUFFIX = ".validator";
+
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+
+    private final Path target;
+    private final Path part;
+    private final Path validator;
+
+    PartialImage(Path target) {
+        this.target = target;
+        this.part = target.resolveSibling(target.getFileName() + PartialImage.PART_SUFFIX);
+        this.validator = target.resolveSibling(target.getFileName() + PartialImage.VALIDATOR_SUFFIX);
+    }
+
+    static boolean isWorkFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(PartialImage.PART_SUFFIX) || name.endsWith(PartialImage.VALIDATOR_SUFFIX);
+    }
+
+    boolean isComplete() {
+        try {
+            return Files.isRegularFile(target) && Files.size(target) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    Path getTarget() {
+        return target;
+    }
+
+    @Override
+    public Request.Builder prepare(Request.Builder request) {
+        long offset = partSize();
+        String ifRange = readValidator();
+        if (offset > 0 && ifRange != null) {
+            PartialImage.log.debug("Resuming {} from byte {}", target.getFileName(), offset);
+            request.header("Range", "bytes=" + offset + "-").header("If-Range", ifRange);
+        }
+        return request;
+    }
+
+    @Override
+    public void rejected(Response response) throws IOException {
+        if (response.code() == 416) {
+            PartialImage.log.debug("Server rejected resume range for {}, starting over", target.getFileName());
+            reset();
+        }
+    }
+
+    @Override
+    public Path handle(Response response) throws IOException {
+        boolean append = false;
+
+        if (response.code() == 206) {
+            long start = contentRangeStart(response.header("Content-Range"));
+            if (start != partSize()) {
+                reset();
+                throw new IOException(String.format("Unexpected Content-Range for %s: %s",
+                        target.getFileName(), response.header("Content-Range")));
+            }
+            append = true;
+        } else {
+            writeValidator(response);
+        }
+
+        try (InputStream body = response.body().byteStream();
+                OutputStream out = Files.newOutputStream(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            body.transferTo(out);
+        }
+
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(validator);
+        return target;
+    }
+
+    private void writeValidator(Response response) throws IOException {
+        String etag = response.header("ETag");
+        String value = etag != null && !etag.startsWith("W/") ? etag : response.header("Last-Modified");
+
+        if (value == null) {
+            Files.deleteIfExists(validator);
+        } else {
+            Files.writeString(validator, value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private String readValidator() {
+        try {
+            return Files.isRegularFile(validator) ? Files.readString(validator, StandardCharsets.UTF_8).trim() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private long partSize() {
+        try {
+            return Files.isRegularFile(part) ? Files.size(part) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void reset() throws IOException {
+        Files.deleteIfExists(part);
+        Files.deleteIfExists(validator);
+    }
+
+    private static long contentRangeStart(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        Matcher matcher = PartialImage.CONTENT_RANGE_PATTERN.matcher(contentRange.trim());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+}
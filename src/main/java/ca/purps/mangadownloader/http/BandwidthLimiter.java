@@ -0,0 +1,115 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.ForwardingSource;
+
+/**
+ * Network interceptor that caps how fast response bodies are read, across all
+ * transfers ({@code bandwidthBytesPerSecond}) and per host
+ * ({@code hostBandwidthBytesPerSecond}). Bodies are read in small chunks and
+ * each chunk is paid for in a shared reservation-based {@link TokenBucket}, so
+ * concurrent transfers interleave and split the budget evenly instead of
+ * taking turns. Sitting below the cache, it only counts bytes that actually
+ * came over the wire.
+ */
+@Slf4j
+public class BandwidthLimiter implements Interceptor {
+
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    private final AppConfig config;
+    private final TokenBucket global;
+    private final Map<String, TokenBucket> hosts = new ConcurrentHashMap<>();
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong firstByteNanos = new AtomicLong();
+    private final AtomicLong lastByteNanos = new AtomicLong();
+
+    public BandwidthLimiter(AppConfig config) {
+        this.config = config;
+        this.global = createBucket(config.getBandwidthBytesPerSecond());
+    }
+
+    public boolean isEnabled() {
+        return config.getBandwidthBytesPerSecond() > 0 || config.getHostBandwidthBytesPerSecond() > 0;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        if (!isEnabled() || response.body() == null) {
+            return response;
+        }
+
+        TokenBucket host = hosts.computeIfAbsent(chain.request().url().host(),
+                key -> createBucket(config.getHostBandwidthBytesPerSecond()));
+
+        return response.newBuilder()
+                .body(new ForwardingResponseBody(response.body(), source -> new ForwardingSource(source) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, Math.min(byteCount, BandwidthLimiter.CHUNK_BYTES));
+                        if (read > 0) {
+                            consume(host, read);
+                        }
+                        return read;
+                    }
+                }))
+                .build();
+    }
+
+    /**
+     * Logs the rate achieved while bytes were flowing against the configured
+     * global cap.
+     */
+    public void logStats() {
+        long total = bytes.get();
+        long elapsedNanos = lastByteNanos.get() - firstByteNanos.get();
+        if (!isEnabled() || total == 0 || elapsedNanos <= 0) {
+            return;
+        }
+
+        long achieved = (long) (total / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+        BandwidthLimiter.log.info("Transferred {} bytes at {} bytes/s (target {} bytes/s globally, {} bytes/s per host)",
+                total, achieved, describe(config.getBandwidthBytesPerSecond()), describe(config.getHostBandwidthBytesPerSecond()));
+    }
+
+    private void consume(TokenBucket host, long count) throws InterruptedIOException {
+        long now = System.nanoTime();
+        firstByteNanos.compareAndSet(0, now);
+        lastByteNanos.accumulateAndGet(now, Math::max);
+        bytes.addAndGet(count);
+
+        long waitNanos = Math.max(global.reserve(count), host.reserve(count));
+        if (waitNanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        }
+    }
+
+    private static TokenBucket createBucket(long bytesPerSecond) {
+        return new TokenBucket(bytesPerSecond, Math.max(BandwidthLimiter.CHUNK_BYTES, bytesPerSecond / 10));
+    }
+
+    private static String describe(long bytesPerSecond) {
+        return bytesPerSecond > 0 ? String.valueOf(bytesPerSecond) : "unlimited";
+    }
+
+}
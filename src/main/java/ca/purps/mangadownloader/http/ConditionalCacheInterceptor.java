@@ -0,0 +1,38 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Network interceptor that makes every page carrying a validator cacheable but
+ * always revalidated. Sites rarely send useful freshness headers, so without
+ * this OkHttp either skips the cache or serves a page heuristically fresh for
+ * hours. With it, a rerun costs a conditional GET and an unchanged page comes
+ * back as a 304 served from disk.
+ */
+public class ConditionalCacheInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        if (!"GET".equals(chain.request().method())) {
+            return response;
+        }
+        if (response.code() != 304 && !response.isSuccessful()) {
+            return response;
+        }
+        if (response.code() != 304 && response.header("ETag") == null && response.header("Last-Modified") == null) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .removeHeader("Expires")
+                .header("Cache-Control", "no-cache")
+                .build();
+    }
+
+}
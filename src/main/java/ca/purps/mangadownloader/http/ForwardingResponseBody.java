@@ -0,0 +1,41 @@
+package ca.purps.mangadownloader.http;
+
+import java.util.function.UnaryOperator;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Response body that reads from {@code delegate} through a source supplied by
+ * an interceptor, so each interceptor only writes the reading or closing
+ * behaviour it adds.
+ */
+class ForwardingResponseBody extends ResponseBody {
+
+    private final ResponseBody delegate;
+    private final BufferedSource source;
+
+    ForwardingResponseBody(ResponseBody delegate, UnaryOperator<Source> transform) {
+        this.delegate = delegate;
+        this.source = Okio.buffer(transform.apply(delegate.source()));
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+        return source;
+    }
+
+}
@@ -0,0 +1,74 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.RequiredArgsConstructor;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okio.ForwardingSource;
+import okio.Source;
+
+/**
+ * Caps the number of in-flight requests per host. OkHttp's dispatcher only
+ * limits asynchronous calls, and everything here uses {@code execute()}, so
+ * the limit is enforced in an interceptor. A permit is held until the response
+ * body is closed.
+ */
+@RequiredArgsConstructor
+public class HostConnectionLimiter implements Interceptor {
+
+    private final int maxPerHost;
+
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Semaphore semaphore = permits.computeIfAbsent(chain.request().url().host(), host -> new Semaphore(maxPerHost, true));
+
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + chain.request().url().host());
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+
+        if (response.body() == null) {
+            semaphore.release();
+            return response;
+        }
+
+        return response.newBuilder()
+                .body(new ForwardingResponseBody(response.body(), source -> releasing(source, semaphore)))
+                .build();
+    }
+
+    private static Source releasing(Source source, Semaphore semaphore) {
+        AtomicBoolean released = new AtomicBoolean();
+        return new ForwardingSource(source) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        semaphore.release();
+                    }
+                }
+            }
+        };
+    }
+
+}
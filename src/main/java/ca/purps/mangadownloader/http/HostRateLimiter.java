@@ -0,0 +1,72 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Per-host request rate limit. Every host gets its own token bucket, with the
+ * rate taken from {@code hostRequestsPerSecond} (exact host first, then each
+ * parent domain) or {@code defaultRequestsPerSecond}. A 429 or 503 pauses the
+ * host for the time given in {@code Retry-After}, or for
+ * {@code defaultRetryAfterMs} when the server does not say.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class HostRateLimiter implements Interceptor {
+
+    private final AppConfig config;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        TokenBucket bucket = buckets.computeIfAbsent(host, this::createBucket);
+
+        bucket.acquire(1);
+        Response response = chain.proceed(chain.request());
+
+        if (response.code() == 429 || response.code() == 503) {
+            long pauseMs = parseRetryAfter(response.header("Retry-After"));
+            HostRateLimiter.log.warn("{} responded with {}, pausing requests to it for {} ms", host, response.code(), pauseMs);
+            bucket.pause(pauseMs);
+        }
+
+        return response;
+    }
+
+    private TokenBucket createBucket(String host) {
+        double rate = resolveRate(host);
+        HostRateLimiter.log.debug("Rate limit for {}: {} requests/s", host, rate > 0 ? rate : "unlimited");
+        return new TokenBucket(rate, config.getHostRequestBurst());
+    }
+
+    private double resolveRate(String host) {
+        Map<String, Double> rates = config.getHostRequestsPerSecond();
+        String candidate = host;
+        while (true) {
+            Double rate = rates.get(candidate);
+            if (rate != null) {
+                return rate;
+            }
+            int dot = candidate.indexOf('.');
+            if (dot < 0) {
+                return config.getDefaultRequestsPerSecond();
+            }
+            candidate = candidate.substring(dot + 1);
+        }
+    }
+
+    private long parseRetryAfter(String retryAfter) {
+        long retryAfterMs = RetryAfter.parseMillis(retryAfter);
+        return retryAfterMs >= 0 ? retryAfterMs : config.getDefaultRetryAfterMs();
+    }
+
+}
@@ -0,0 +1,73 @@
+package ca.purps.mangadownloader.http;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Builds the HTTP clients used by the scrapers and the downloader. Both are
+ * derived from one base client, so they share the connection pool, the
+ * dispatcher, TLS sessions and the per-host rate and connection limits. The
+ * {@link RetryPolicy} is shared the same way, so both draw on one retry budget.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class HttpClientFactory {
+
+    private final AppConfig config;
+
+    @Getter(lazy = true)
+    private final OkHttpClient client = createClient();
+
+    @Getter(lazy = true)
+    private final OkHttpClient scraperClient = createScraperClient();
+
+    @Getter(lazy = true)
+    private final RetryPolicy retryPolicy = new RetryPolicy(config);
+
+    @Getter(lazy = true)
+    private final BandwidthLimiter bandwidthLimiter = new BandwidthLimiter(config);
+
+    private OkHttpClient createClient() {
+        int maxRequests = config.getMaxConcurrentDownloads() + config.getMaxConcurrentScrapes();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(config.getMaxConnectionsPerHost());
+
+        HttpClientFactory.log.debug("Creating HTTP client (max requests: {}, per host: {})", maxRequests, config.getMaxConnectionsPerHost());
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxRequests, config.getConnectionKeepAliveSeconds(), TimeUnit.SECONDS))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addInterceptor(new HostRateLimiter(config))
+                .addInterceptor(new HostConnectionLimiter(config.getMaxConnectionsPerHost()))
+                .addNetworkInterceptor(new MetricsInterceptor())
+                .addNetworkInterceptor(getBandwidthLimiter())
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private OkHttpClient createScraperClient() {
+        OkHttpClient.Builder builder = getClient().newBuilder();
+
+        if (config.isHttpCacheEnabled()) {
+            builder.cache(new Cache(config.getHttpCachePath().toFile(), config.getHttpCacheMaxBytes()))
+                    .addNetworkInterceptor(new ConditionalCacheInterceptor());
+        }
+
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,31 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+
+import lombok.Getter;
+import okhttp3.Response;
+
+/**
+ * A response that arrived but was not successful. Carries what
+ * {@link RetryPolicy} needs to decide whether and when to try again.
+ */
+@Getter
+public class HttpStatusException extends IOException {
+
+    private final int code;
+    private final long retryAfterMs;
+
+    public HttpStatusException(String message, int code, long retryAfterMs) {
+        super(message);
+        this.code = code;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public static HttpStatusException from(Response response) {
+        return new HttpStatusException(
+                String.format("%s responded with %d", response.request().url(), response.code()),
+                response.code(),
+                RetryAfter.parseMillis(response.header("Retry-After")));
+    }
+
+}
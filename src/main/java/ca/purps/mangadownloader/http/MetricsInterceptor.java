@@ -0,0 +1,65 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ca.purps.mangadownloader.metrics.Counter;
+import ca.purps.mangadownloader.metrics.Metrics;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.ForwardingSource;
+
+/**
+ * Network interceptor that records per-host request latency up to the response
+ * headers, the number of requests in flight and the body bytes received.
+ * Like {@link BandwidthLimiter} it sits below the cache, so only traffic that
+ * went over the wire is counted.
+ */
+public class MetricsInterceptor implements Interceptor {
+
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+    static {
+        Metrics.gauge("manga_http_requests_in_flight", "HTTP requests waiting for a response", MetricsInterceptor.IN_FLIGHT::get);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        long start = System.nanoTime();
+
+        MetricsInterceptor.IN_FLIGHT.incrementAndGet();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            Metrics.counter("manga_http_requests_total", "HTTP requests by host and status", "host", host, "status", "error").inc();
+            throw e;
+        } finally {
+            MetricsInterceptor.IN_FLIGHT.decrementAndGet();
+        }
+
+        Metrics.histogram("manga_http_request_seconds", "Time to response headers by host", "host", host).observeSince(start);
+        Metrics.counter("manga_http_requests_total", "HTTP requests by host and status", "host", host, "status", String.valueOf(response.code())).inc();
+
+        if (response.body() == null) {
+            return response;
+        }
+
+        Counter bytes = Metrics.counter("manga_http_received_bytes_total", "Response body bytes received by host", "host", host);
+        return response.newBuilder()
+                .body(new ForwardingResponseBody(response.body(), source -> new ForwardingSource(source) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read > 0) {
+                            bytes.add(read);
+                        }
+                        return read;
+                    }
+                }))
+                .build();
+    }
+
+}
@@ -0,0 +1,34 @@
+package ca.purps.mangadownloader.http;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class RetryAfter {
+
+    /**
+     * Parses a {@code Retry-After} header given in seconds or as an HTTP date.
+     * Returns {@code -1} when the header is missing or unreadable.
+     */
+    public static long parseMillis(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return -1;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+            } catch (DateTimeParseException ignored) {
+                return -1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.metrics.Counter;
+import ca.purps.mangadownloader.metrics.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides whether a failed request is worth repeating and when.
+ * <p>
+ * Timeouts, dropped connections and 408/425/429/5xx responses are retried;
+ * other 4xx responses and everything else fail at once. The delay grows
+ * exponentially from {@code retryDelayMs} up to {@code retryMaxDelayMs} with
+ * full jitter, so clients that failed together do not come back together,
+ * and never undercuts a {@code Retry-After}. Asynchronous retries wait on a
+ * shared timer instead of a sleeping worker.
+ * <p>
+ * All retries draw from one budget of {@code retryBudget} tokens. Each retry
+ * spends a token and each success earns back {@code retryBudgetRefill}. Once
+ * less than half the budget is left, failures are no longer retried, so a
+ * run against a host that is down fails quickly instead of multiplying its
+ * load.
+ */
+@Slf4j
+public class RetryPolicy {
+
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 425, 429, 500, 502, 503, 504);
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "retry-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Counter RETRIES = Metrics.counter("manga_retries_total", "Requests retried after a failure");
+    private static final Counter RETRIES_DENIED = Metrics.counter("manga_retries_denied_total", "Retryable failures dropped by the retry budget");
+
+    public enum Failure {
+        RETRYABLE,
+        PERMANENT
+    }
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    private final AppConfig config;
+
+    private double tokens;
+    private boolean exhaustedLogged;
+
+    public RetryPolicy(AppConfig config) {
+        this.config = config;
+        this.tokens = config.getRetryBudget();
+
+        Metrics.gauge("manga_retry_budget_tokens", "Retry tokens left in the shared budget", this::getTokens);
+    }
+
+    public static Failure classify(Throwable error) {
+        Throwable cause = unwrap(error);
+
+        if (cause instanceof HttpStatusException statusException) {
+            return RetryPolicy.RETRYABLE_STATUS_CODES.contains(statusException.getCode()) ? Failure.RETRYABLE : Failure.PERMANENT;
+        }
+        if (cause instanceof SocketTimeoutException || cause instanceof ConnectException || cause instanceof UnknownHostException) {
+            return Failure.RETRYABLE;
+        }
+        if (cause instanceof InterruptedIOException || cause instanceof SSLPeerUnverifiedException) {
+            return Failure.PERMANENT;
+        }
+        if (cause instanceof IOException) {
+            return Failure.RETRYABLE;
+        }
+        return Failure.PERMANENT;
+    }
+
+    /**
+     * Runs {@code attempt} on the calling thread, sleeping between tries.
+     */
+    public <T> T execute(String description, Attempt<T> attempt) throws IOException {
+        for (int number = 1;; number++) {
+            try {
+                T result = attempt.run();
+                onSuccess();
+                return result;
+            } catch (IOException e) {
+                long delay = nextDelay(description, e, number);
+                if (delay < 0) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + description);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts {@code attempt} and, on a retryable failure, starts it again after
+     * the backoff delay. Nothing blocks while waiting.
+     */
+    public <T> CompletableFuture<T> executeAsync(String description, Supplier<CompletableFuture<T>> attempt) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        runAsync(description, attempt, 1, result);
+        return result;
+    }
+
+    private <T> void runAsync(String description, Supplier<CompletableFuture<T>> attempt, int number, CompletableFuture<T> result) {
+        attempt.get().whenComplete((value, error) -> {
+            if (error == null) {
+                onSuccess();
+                result.complete(value);
+                return;
+            }
+
+            long delay = nextDelay(description, error, number);
+            if (delay < 0) {
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            RetryPolicy.TIMER.schedule(() -> runAsync(description, attempt, number + 1, result), delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Returns how long to wait before retrying after attempt {@code number}
+     * failed with {@code error}, or {@code -1} to give up.
+     */
+    long nextDelay(String description, Throwable error, int number) {
+        Throwable cause = unwrap(error);
+
+        if (classify(cause) == Failure.PERMANENT) {
+            RetryPolicy.log.debug("Not retrying {}: {}", description, cause.toString());
+            return -1;
+        }
+        if (number >= config.getRetryAttempts()) {
+            RetryPolicy.log.debug("Giving up on {} after {} attempts: {}", description, number, cause.toString());
+            return -1;
+        }
+        if (!withdraw()) {
+            return -1;
+        }
+
+        long ceiling = Math.min(config.getRetryMaxDelayMs(), config.getRetryDelayMs() << Math.min(number - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (cause instanceof HttpStatusException statusException && statusException.getRetryAfterMs() > delay) {
+            delay = statusException.getRetryAfterMs();
+        }
+
+        RetryPolicy.log.debug("Retrying {} in {} ms (attempt {}/{}): {}",
+                description, delay, number + 1, config.getRetryAttempts(), cause.toString());
+        return delay;
+    }
+
+    synchronized double getTokens() {
+        return tokens;
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens <= config.getRetryBudget() / 2.0) {
+            RetryPolicy.RETRIES_DENIED.inc();
+            if (!exhaustedLogged) {
+                exhaustedLogged = true;
+                RetryPolicy.log.warn("Retry budget exhausted, failing requests without retrying");
+            }
+            return false;
+        }
+        tokens -= 1;
+        RetryPolicy.RETRIES.inc();
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        tokens = Math.min(config.getRetryBudget(), tokens + config.getRetryBudgetRefill());
+        if (exhaustedLogged && tokens > config.getRetryBudget() / 2.0) {
+            exhaustedLogged = false;
+            RetryPolicy.log.info("Retry budget recovered, retrying failed requests again");
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+}
@@ -0,0 +1,72 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservation based token bucket. Each caller reserves its permits up front
+ * and sleeps for exactly as long as its reservation needs, so waiters are
+ * served in arrival order instead of racing for the next refill. A bucket with
+ * a non-positive rate never throttles but can still be paused.
+ */
+public class TokenBucket {
+
+    private final double ratePerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    public void acquire(double permits) throws InterruptedIOException {
+        long waitNanos = reserve(permits);
+        if (waitNanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rate limit");
+        }
+    }
+
+    public synchronized long reserve(double permits) {
+        long now = System.nanoTime();
+        long pauseNanos = Math.max(0, pausedUntil - now);
+
+        if (ratePerSecond <= 0) {
+            return pauseNanos;
+        }
+
+        refill(now);
+        tokens -= permits;
+
+        long debtNanos = tokens >= 0 ? 0 : (long) (-tokens / ratePerSecond * TimeUnit.SECONDS.toNanos(1));
+        return pauseNanos + debtNanos;
+    }
+
+    public synchronized void pause(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until > pausedUntil) {
+            pausedUntil = until;
+        }
+        tokens = Math.min(tokens, 0);
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefill) / (double) TimeUnit.SECONDS.toNanos(1);
+        tokens = Math.min(capacity, tokens + elapsedSeconds * ratePerSecond);
+        lastRefill = now;
+    }
+
+}
@@ -0,0 +1,51 @@
+package ca.purps.mangadownloader.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count with a one-minute exponentially weighted rate, refreshed by
+ * {@link Metrics} every few seconds.
+ */
+public class Counter {
+
+    private static final double ALPHA = 1 - Math.exp(-Metrics.TICK_SECONDS / 60.0);
+
+    private final LongAdder total = new LongAdder();
+
+    private long lastTotal;
+    private volatile double rate;
+    private boolean initialized;
+
+    public void inc() {
+        total.increment();
+    }
+
+    public void add(long amount) {
+        total.add(amount);
+    }
+
+    public long get() {
+        return total.sum();
+    }
+
+    /**
+     * Events per second over roughly the last minute.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    synchronized void tick() {
+        long current = total.sum();
+        double instantRate = (current - lastTotal) / (double) Metrics.TICK_SECONDS;
+        lastTotal = current;
+
+        if (initialized) {
+            rate += Counter.ALPHA * (instantRate - rate);
+        } else {
+            rate = instantRate;
+            initialized = true;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package ca.purps.mangadownloader.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution in seconds over fixed buckets, the shape Prometheus
+ * expects for a histogram.
+ */
+public class Histogram {
+
+    static final double[] BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120 };
+
+    private final LongAdder[] counts = new LongAdder[Histogram.BUCKETS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double seconds) {
+        int bucket = 0;
+        while (bucket < Histogram.BUCKETS.length && seconds > Histogram.BUCKETS[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        count.increment();
+        sum.add(seconds);
+    }
+
+    public void observeSince(long startNanos) {
+        observe((System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Cumulative counts per bucket, the last one being {@code +Inf}.
+     */
+    long[] getCumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long running = 0;
+        for (int i = 0; i < counts.length; i++) {
+            running += counts[i].sum();
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+
+}
@@ -0,0 +1,114 @@
+package ca.purps.mangadownloader.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Process-wide metric registry. Metrics are created on first use and looked
+ * up by name plus label pairs, so instrumented code just calls
+ * {@code Metrics.counter("name", "help", "host", host).inc()}.
+ */
+@UtilityClass
+public class Metrics {
+
+    static final long TICK_SECONDS = 5;
+
+    public enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> samples = new ConcurrentHashMap<>();
+    }
+
+    private static final Map<String, Family> FAMILIES = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-ticker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Metrics.TICKER.scheduleAtFixedRate(Metrics::tick, Metrics.TICK_SECONDS, Metrics.TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).getSamples()
+                .computeIfAbsent(renderLabels(labels), key -> new Counter());
+    }
+
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM).getSamples()
+                .computeIfAbsent(renderLabels(labels), key -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge read on demand. Registering the same name and labels
+     * again replaces the previous supplier.
+     */
+    public static void gauge(String name, String help, Supplier<? extends Number> value, String... labels) {
+        family(name, help, Type.GAUGE).getSamples().put(renderLabels(labels), value);
+    }
+
+    /**
+     * Snapshot of every family, sorted by name.
+     */
+    public static Map<String, Family> families() {
+        return new TreeMap<>(Metrics.FAMILIES);
+    }
+
+    private static Family family(String name, String help, Type type) {
+        Family family = Metrics.FAMILIES.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.getType() != type) {
+            throw new IllegalArgumentException(String.format("Metric %s is a %s, not a %s", name, family.getType(), type));
+        }
+        return family;
+    }
+
+    private static String renderLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+
+        StringBuilder rendered = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return rendered.append('}').toString();
+    }
+
+    private static String escape(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void tick() {
+        Metrics.FAMILIES.values().stream()
+                .filter(family -> family.getType() == Type.COUNTER)
+                .flatMap(family -> family.getSamples().values().stream())
+                .forEach(counter -> ((Counter) counter).tick());
+    }
+
+}
@@ -0,0 +1,89 @@
+package ca.purps.mangadownloader.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpServer;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes the registry over JMX and, when {@code metricsPort} is set, as a
+ * Prometheus scrape target on {@code http://localhost:<port>/metrics}.
+ */
+@Slf4j
+public class MetricsExporter implements AutoCloseable {
+
+    static final String OBJECT_NAME = "ca.purps.mangadownloader:type=Metrics";
+
+    private final HttpServer server;
+    private final ObjectName objectName;
+
+    private MetricsExporter(HttpServer server, ObjectName objectName) {
+        this.server = server;
+        this.objectName = objectName;
+    }
+
+    public static MetricsExporter start(AppConfig config) {
+        return new MetricsExporter(
+                config.getMetricsPort() > 0 ? startServer(config.getMetricsPort()) : null,
+                config.isMetricsJmxEnabled() ? registerMBean() : null);
+    }
+
+    private static HttpServer startServer(int port) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = PrometheusFormat.render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", PrometheusFormat.CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            MetricsExporter.log.info("Serving metrics on http://localhost:{}/metrics", server.getAddress().getPort());
+            return server;
+        } catch (IOException e) {
+            MetricsExporter.log.warn("Failed to start metrics endpoint on port {}: {}", port, e.getMessage());
+            return null;
+        }
+    }
+
+    private static ObjectName registerMBean() {
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MetricsExporter.OBJECT_NAME);
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(new MetricsMBean(), name);
+            }
+            return name;
+        } catch (JMException e) {
+            MetricsExporter.log.warn("Failed to register metrics MBean: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                MetricsExporter.log.debug("Failed to unregister metrics MBean", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package ca.purps.mangadownloader.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+
+/**
+ * Read-only JMX view of the registry. Every sample becomes an attribute named
+ * after the metric and its labels; counters also expose their rate and
+ * histograms their count, sum and mean.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> snapshot = snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            if (snapshot.containsKey(attribute)) {
+                list.add(new Attribute(attribute, snapshot.get(attribute)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        snapshot().forEach((name, value) -> attributes.add(
+                new MBeanAttributeInfo(name, value.getClass().getName(), name, true, false, false)));
+
+        return new MBeanInfo(getClass().getName(), "Manga downloader metrics",
+                attributes.toArray(MBeanAttributeInfo[]::new), null, null, null);
+    }
+
+    private Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        for (Metrics.Family family : Metrics.families().values()) {
+            for (Map.Entry<String, Object> sample : new TreeMap<>(family.getSamples()).entrySet()) {
+                String name = family.getName() + sample.getKey();
+                switch (family.getType()) {
+                    case COUNTER -> {
+                        Counter counter = (Counter) sample.getValue();
+                        values.put(name, counter.get());
+                        values.put(name + ".rate", counter.getRate());
+                    }
+                    case GAUGE -> {
+                        Object value = ((Supplier<?>) sample.getValue()).get();
+                        values.put(name, value instanceof Number number ? number.doubleValue() : 0.0);
+                    }
+                    case HISTOGRAM -> {
+                        Histogram histogram = (Histogram) sample.getValue();
+                        values.put(name + ".count", histogram.getCount());
+                        values.put(name + ".sum", histogram.getSum());
+                        values.put(name + ".mean", histogram.getCount() == 0 ? 0.0 : histogram.getSum() / histogram.getCount());
+                    }
+                }
+            }
+        }
+
+        return values;
+    }
+
+}
@@ -0,0 +1,57 @@
+package ca.purps.mangadownloader.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Renders the registry in the Prometheus text exposition format, version
+ * 0.0.4.
+ */
+@UtilityClass
+public class PrometheusFormat {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public static String render() {
+        StringBuilder out = new StringBuilder();
+
+        for (Metrics.Family family : Metrics.families().values()) {
+            out.append("# HELP ").append(family.getName()).append(' ').append(family.getHelp()).append('\n');
+            out.append("# TYPE ").append(family.getName()).append(' ').append(family.getType().name().toLowerCase()).append('\n');
+
+            for (Map.Entry<String, Object> sample : new TreeMap<>(family.getSamples()).entrySet()) {
+                String labels = sample.getKey();
+                switch (family.getType()) {
+                    case COUNTER -> line(out, family.getName(), labels, ((Counter) sample.getValue()).get());
+                    case GAUGE -> line(out, family.getName(), labels, ((Supplier<?>) sample.getValue()).get());
+                    case HISTOGRAM -> histogram(out, family.getName(), labels, (Histogram) sample.getValue());
+                }
+            }
+        }
+
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long[] cumulative = histogram.getCumulativeCounts();
+        for (int i = 0; i < cumulative.length; i++) {
+            String le = i < Histogram.BUCKETS.length ? String.valueOf(Histogram.BUCKETS[i]) : "+Inf";
+            line(out, name + "_bucket", withLabel(labels, "le", le), cumulative[i]);
+        }
+        line(out, name + "_sum", labels, histogram.getSum());
+        line(out, name + "_count", labels, histogram.getCount());
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static void line(StringBuilder out, String name, String labels, Object value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+}
@@ -27,6 +27,8 @@ public class Chapter implements MangaEntity {
     private final List<String> imageUrls;
     @NonNull
     private final String description;
+    @Builder.Default
+    private final boolean stub = false;
 
     @Setter
     private Path archivePath;
@@ -0,0 +1,121 @@
+package ca.purps.mangadownloader.model;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+import ca.purps.mangadownloader.exception.ScraperException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chapters of a series delivered while they are still being scraped. Scraping
+ * starts on the first call to {@link #hasNext()} and blocks once
+ * {@code capacity} chapters are waiting, so the scraper can never run further
+ * ahead of the consumer than that. The URLs of the chapters to come are known
+ * up front, so a series can be checked against the tracker before any
+ * chapter is scraped.
+ */
+@Slf4j
+public class ChapterStream implements Iterator<Chapter>, AutoCloseable {
+
+    @Getter
+    private final List<String> chapterUrls;
+
+    private final BlockingQueue<Optional<Chapter>> queue;
+    private final Thread producer;
+
+    private volatile RuntimeException failure;
+
+    private Chapter next;
+    private boolean started;
+    private boolean finished;
+
+    public ChapterStream(int capacity, List<String> chapterUrls, Consumer<Consumer<Chapter>> source) {
+        this.chapterUrls = List.copyOf(chapterUrls);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.producer = new Thread(() -> produce(source), "chapter-stream");
+        this.producer.setDaemon(true);
+    }
+
+    private void produce(Consumer<Consumer<Chapter>> source) {
+        try {
+            source.accept(this::publish);
+        } catch (CancellationException e) {
+            ChapterStream.log.debug("Chapter stream cancelled");
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            try {
+                queue.put(Optional.empty());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void publish(Chapter chapter) {
+        try {
+            queue.put(Optional.of(chapter));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Chapter stream closed");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            producer.start();
+        }
+
+        Optional<Chapter> item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScraperException("Interrupted while waiting for the next chapter", e);
+        }
+
+        if (item.isEmpty()) {
+            finished = true;
+            if (failure != null) {
+                throw new ScraperException("Failed to stream chapters", failure);
+            }
+            return false;
+        }
+
+        next = item.get();
+        return true;
+    }
+
+    @Override
+    public Chapter next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Chapter chapter = next;
+        next = null;
+        return chapter;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        producer.interrupt();
+        queue.clear();
+    }
+
+}
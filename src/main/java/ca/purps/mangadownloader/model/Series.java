@@ -9,7 +9,7 @@ import lombok.NonNull;
 
 @Getter
 @Builder
-@EqualsAndHashCode(exclude = { "chapters" })
+@EqualsAndHashCode(exclude = { "chapters", "chapterStream" })
 public class Series implements MangaEntity {
         @NonNull
         private final String url;
@@ -23,10 +23,11 @@ public class Series implements MangaEntity {
         private final List<String> authors;
         @NonNull
         private final List<String> genres;
-        @NonNull
         private final byte[] coverBytes;
         @NonNull
         private final Status status;
         @NonNull
         private final List<Chapter> chapters;
+
+        private final ChapterStream chapterStream;
 }
\ No newline at end of file
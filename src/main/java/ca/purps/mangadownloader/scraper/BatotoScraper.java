@@ -1,10 +1,15 @@
 package ca.purps.mangadownloader.scraper;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -15,21 +20,39 @@ import org.jsoup.nodes.Document;
 
 import ca.purps.mangadownloader.config.AppConfig;
 import ca.purps.mangadownloader.exception.ScraperException;
+import ca.purps.mangadownloader.http.HttpStatusException;
+import ca.purps.mangadownloader.http.RetryPolicy;
+import ca.purps.mangadownloader.metrics.Histogram;
+import ca.purps.mangadownloader.metrics.Metrics;
 import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.ChapterStream;
 import ca.purps.mangadownloader.model.Series;
 import ca.purps.mangadownloader.model.Status;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
 @Slf4j
-@RequiredArgsConstructor
 public class BatotoScraper implements MangaScraper {
 
+    private static final Histogram PAGE_SECONDS = Metrics.histogram("manga_stage_seconds", "Time spent per pipeline stage", "stage", "scrape");
+
     private final AppConfig config;
     private final OkHttpClient httpClient;
+    private final ChapterScrapeStage scrapeStage;
+    private final RetryPolicy retryPolicy;
+
+    public BatotoScraper(AppConfig config, OkHttpClient httpClient) {
+        this(config, httpClient, new RetryPolicy(config));
+    }
+
+    public BatotoScraper(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy) {
+        this.config = config;
+        this.httpClient = httpClient;
+        this.retryPolicy = retryPolicy;
+        this.scrapeStage = new ChapterScrapeStage(config);
+    }
 
     public static final String BASE_URL = "https://bato.to";
 
@@ -37,19 +60,133 @@ public class BatotoScraper implements MangaScraper {
 
     private static final Pattern CHAPTER_NAME_PATTERN = Pattern.compile("local_text_epi\\s*=\\s*'([^']+)'");
     private static final Pattern CHAPTER_ID_PATTERN = Pattern.compile("episodeIid\\s*=\\s*(\\d+);");
+    private static final Pattern CHAPTER_URL_ID_PATTERN = Pattern.compile("/chapter/(\\d+)");
 
     private static final Pattern IMAGE_VARIABLE_PATTERN = Pattern.compile("imgHttps\\s*=\\s*\\[(.*?)\\];");
     private static final Pattern IMAGE_URL_PATTERN = Pattern.compile("\"(https://[^\"]+)\"");
 
+    private static final ScriptVariableExtractor SERIES_SCRIPTS = ScriptVariableExtractor.builder()
+            .variable("subjectIid", BatotoScraper.SERIES_ID_PATTERN)
+            .build();
+
+    private static final ScriptVariableExtractor CHAPTER_SCRIPTS = ScriptVariableExtractor.builder()
+            .variable("episodeIid", BatotoScraper.CHAPTER_ID_PATTERN)
+            .variable("local_text_epi", BatotoScraper.CHAPTER_NAME_PATTERN)
+            .variable("imgHttps", BatotoScraper.IMAGE_VARIABLE_PATTERN)
+            .build();
+
+    public static class Provider implements ScraperProvider {
+
+        @Override
+        public Set<String> getHosts() {
+            return Set.of("bato.to");
+        }
+
+        @Override
+        public UrlType classify(String url) {
+            return Provider.classifyUrl(url);
+        }
+
+        @Override
+        public MangaScraper create(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy) {
+            return new BatotoScraper(config, httpClient, retryPolicy);
+        }
+
+        private static UrlType classifyUrl(String url) {
+            if (url.contains("/series/")) {
+                return UrlType.SERIES;
+            }
+            if (url.contains("/chapter/")) {
+                return UrlType.CHAPTER;
+            }
+            return UrlType.UNSUPPORTED;
+        }
+
+    }
+
     @Override
-    public Series scrapeSeries(String url) {
+    public UrlType classify(String url) {
+        return Provider.classifyUrl(url);
+    }
+
+    @Override
+    public Series scrapeSeries(String url, Predicate<String> isCompleted) {
         BatotoScraper.log.info("Scraping series from URL: {}", url);
         Document doc = fetchPage(url);
 
+        List<Chapter> chapters = new ArrayList<>();
+        Series series = buildSeries(url, doc, chapters);
+
         BatotoScraper.log.debug("Extracting chapters from series page");
+        List<String> chapterUrls = extractOrderedChapterUrls(doc);
+
+        Map<String, String> chapterTitles = extractChapterTitles(doc);
+
+        chapters.addAll(scrapeStage.scrape(chapterUrls, (chapterUrl, i) -> scrapeChapter(series, chapterUrl, i, chapterTitles, isCompleted)));
+
+        BatotoScraper.log.info("Found {} chapters for series ({} already downloaded)", chapters.size(), chapters.stream().filter(Chapter::isStub).count());
+        if (chapters.size() < chapterUrls.size()) {
+            BatotoScraper.log.warn("Skipped {} chapters that could not be scraped", chapterUrls.size() - chapters.size());
+        }
+
+        BatotoScraper.log.info("Successfully scraped series: {}", series.getTitle());
+        return series;
+    }
+
+    @Override
+    public Series streamSeries(String url, Predicate<String> isCompleted) {
+        BatotoScraper.log.info("Streaming series from URL: {}", url);
+        Document doc = fetchPage(url);
+        List<String> chapterUrls = extractOrderedChapterUrls(doc);
+        Map<String, String> chapterTitles = extractChapterTitles(doc);
+
+        List<Chapter> chapters = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Series> seriesRef = new AtomicReference<>();
+
+        ChapterStream stream = new ChapterStream(config.getMaxPendingChapters(), chapterUrls, sink -> scrapeStage.scrape(
+                chapterUrls,
+                (chapterUrl, i) -> scrapeChapter(seriesRef.get(), chapterUrl, i, chapterTitles, isCompleted),
+                chapter -> {
+                    chapters.add(chapter);
+                    sink.accept(chapter);
+                }));
+
+        Series series = buildSeries(url, doc, chapters, stream);
+        seriesRef.set(series);
+        return series;
+    }
+
+    @Override
+    public Chapter scrapeChapter(String url) {
+        BatotoScraper.log.info("Scraping single chapter from URL: {}", url);
+        ChapterPage chapterPage = fetchChapterPage(url, true);
+
+        String seriesUrl = makeAbsoluteUrl(chapterPage.getSeriesUrl());
+        if (seriesUrl == null || seriesUrl.isEmpty()) {
+            throw new ScraperException("Series link not found on chapter page: " + url);
+        }
+        Document seriesDoc = fetchPage(seriesUrl);
 
         List<Chapter> chapters = new ArrayList<>();
-        Series series = Series.builder()
+        Series series = buildSeries(seriesUrl, seriesDoc, chapters);
+
+        List<String> chapterUrls = extractOrderedChapterUrls(seriesDoc);
+        int index = indexOfChapter(chapterUrls, url);
+        if (index < 0) {
+            throw new ScraperException("Chapter not found in series");
+        }
+
+        Chapter chapter = buildChapter(series, chapterUrls.get(index), index, chapterPage);
+        chapters.add(chapter);
+        return chapter;
+    }
+
+    private Series buildSeries(String url, Document doc, List<Chapter> chapters) {
+        return buildSeries(url, doc, chapters, null);
+    }
+
+    private Series buildSeries(String url, Document doc, List<Chapter> chapters, ChapterStream chapterStream) {
+        return Series.builder()
                 .url(url)
                 .id(extractSeriesId(doc))
                 .title(extractMetaTag(doc, "og:title"))
@@ -59,56 +196,62 @@ public class BatotoScraper implements MangaScraper {
                 .coverBytes(downloadCoverBytes(makeAbsoluteUrl(extractAttribute(doc, "div.attr-cover > img.shadow-6", "src"))))
                 .status(extractStatus(doc))
                 .chapters(chapters)
+                .chapterStream(chapterStream)
                 .build();
-
-        List<String> chapterUrls = extractChapterUrls(doc);
-
-        chapters.addAll(IntStream.range(0, chapterUrls.size())
-                .mapToObj(i -> {
-                    String chapterUrl = makeAbsoluteUrl(chapterUrls.get(chapterUrls.size() - 1 - i));
-                    BatotoScraper.log.debug("Found chapter URL: {}", chapterUrl);
-                    Chapter chapter = scrapeChapter(series, chapterUrl, i);
-                    return chapter;
-                })
-                .collect(Collectors.toList()));
-
-        BatotoScraper.log.info("Found {} chapters for series", chapters.size());
-
-        BatotoScraper.log.info("Successfully scraped series: {}", series.getTitle());
-        return series;
     }
 
-
-    @Override
-    public Chapter scrapeChapter(String url) {
-        Document doc = fetchPage(url);
-        Series series = scrapeSeries(extractHref(doc, "h3.nav-title a"));
-        return series.getChapters()
-                .stream()
-                .filter(chapter -> chapter.getUrl().equals(url))
-                .findFirst()
-                .orElseThrow(() -> new ScraperException("Chapter not found in series"));
+    private Chapter scrapeChapter(Series series, String url, int index, Map<String, String> chapterTitles, Predicate<String> isCompleted) {
+        if (isCompleted.test(url)) {
+            BatotoScraper.log.debug("Chapter already downloaded, not fetching: {}", url);
+            return buildStub(series, url, index, chapterTitles.getOrDefault(url, "Unknown Chapter"));
+        }
+        return scrapeChapter(series, url, index);
     }
 
     private Chapter scrapeChapter(Series series, String url, int index) {
         BatotoScraper.log.info("Scraping chapter from URL: {}", url);
-        Document doc = fetchPage(url);
+        return buildChapter(series, url, index, fetchChapterPage(url, false));
+    }
 
-        String chapterName = extractChapterName(doc);
-        List<String> imageUrls = extractImageUrls(doc);
+    private Chapter buildChapter(Series series, String url, int index, ChapterPage page) {
+        BatotoScraper.log.debug("Found {} images in chapter {}", page.getImageUrls().size(), page.getName());
+        return Chapter.builder()
+                .series(series)
+                .url(url)
+                .id(page.getId())
+                .name(page.getName())
+                .description(page.getDescription())
+                .imageUrls(page.getImageUrls())
+                .seriesIndex(index)
+                .build();
+    }
 
-        BatotoScraper.log.debug("Found {} images in chapter {}", imageUrls.size(), chapterName);
+    private Chapter buildStub(Series series, String url, int index, String title) {
+        Matcher matcher = BatotoScraper.CHAPTER_URL_ID_PATTERN.matcher(url);
         return Chapter.builder()
                 .series(series)
                 .url(url)
-                .id(extractChapterId(doc))
-                .name(chapterName)
-                .description(extractMetaTag(doc, "description"))
-                .imageUrls(imageUrls)
+                .id(matcher.find() ? matcher.group(1) : String.valueOf(index))
+                .name(title)
+                .description("")
+                .imageUrls(List.of())
                 .seriesIndex(index)
+                .stub(true)
                 .build();
     }
 
+    private int indexOfChapter(List<String> chapterUrls, String url) {
+        String target = normalizeUrl(makeAbsoluteUrl(url));
+        return IntStream.range(0, chapterUrls.size())
+                .filter(i -> normalizeUrl(chapterUrls.get(i)).equals(target))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    private String normalizeUrl(String url) {
+        return url.replaceAll("[?#].*$", "").replaceAll("/+$", "");
+    }
+
     private String makeAbsoluteUrl(String url) {
         if (url == null || url.isEmpty()) {
             return url;
@@ -123,34 +266,96 @@ public class BatotoScraper implements MangaScraper {
     }
 
     private Document fetchPage(String url) {
+        return fetchPage(url, body -> Jsoup.parse(body.string(), url));
+    }
+
+    private ChapterPage fetchChapterPage(String url, boolean needsSeriesUrl) {
+        return fetchPage(url, body -> readChapterPage(body.charStream(), url, needsSeriesUrl));
+    }
+
+    private <T> T fetchPage(String url, PageHandler<T> handler) {
         BatotoScraper.log.debug("Fetching page: {}", url);
 
+        long start = System.nanoTime();
         try {
             String absoluteUrl = makeAbsoluteUrl(url);
             BatotoScraper.log.debug("Making request to: {}", absoluteUrl);
 
-            Request request = new Request.Builder()
-                    .url(absoluteUrl)
-                    .header("User-Agent", config.getUserAgent())
-                    .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    throw new ScraperException(String.format("Failed to fetch page: {} (Status code: {})", url, response.code()));
-                }
-                BatotoScraper.log.debug("Successfully fetched page: {} (Status code: {})", url, response.code());
-                return Jsoup.parse(response.body().string(), url);
-            }
+            return retryPolicy.execute(absoluteUrl, () -> fetchPageOnce(absoluteUrl, handler));
         } catch (IOException e) {
             throw new ScraperException(String.format("Error fetching page: %s", url), e);
+        } finally {
+            BatotoScraper.PAGE_SECONDS.observeSince(start);
         }
     }
 
-    private List<String> extractChapterUrls(Document doc) {
-        return doc.select("a.visited.chapt")
+    private <T> T fetchPageOnce(String url, PageHandler<T> handler) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", config.getUserAgent())
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw HttpStatusException.from(response);
+            }
+            BatotoScraper.log.debug("Successfully fetched page: {} (Status code: {})", url, response.code());
+            if (response.networkResponse() != null && response.networkResponse().code() == 304) {
+                BatotoScraper.log.debug("Page unchanged, served from cache: {}", url);
+            }
+            return handler.handle(response.body());
+        }
+    }
+
+    private ChapterPage readChapterPage(Reader reader, String url, boolean needsSeriesUrl) throws IOException {
+        ChapterPage page = new ChapterPage();
+        ScriptVariableExtractor.Result scripts = BatotoScraper.CHAPTER_SCRIPTS.newResult();
+
+        StreamingPageReader.read(reader, url, element -> {
+            switch (element.normalName()) {
+                case "meta" -> {
+                    if ("description".equals(element.attr("property"))) {
+                        page.setDescription(element.attr("content").trim());
+                    }
+                }
+                case "a" -> {
+                    if (page.getSeriesUrl() == null && element.closest("h3.nav-title") != null) {
+                        page.setSeriesUrl(element.attr("href").trim());
+                    }
+                }
+                case "script" -> scripts.accept(element.data());
+                default -> {
+                }
+            }
+
+            return scripts.isComplete() && (!needsSeriesUrl || page.getSeriesUrl() != null);
+        });
+
+        page.setId(scripts.get("episodeIid").orElse(null));
+        page.setName(scripts.get("local_text_epi").orElse("Unknown Chapter"));
+        page.setImageUrls(scripts.get("imgHttps").map(this::parseImageUrls).orElse(List.of()));
+        return page;
+    }
+
+    private List<String> extractOrderedChapterUrls(Document doc) {
+        List<String> chapterUrls = doc.select("a.visited.chapt")
                 .stream()
                 .map(e -> e.attr("href").trim())
                 .collect(Collectors.toList());
+
+        return IntStream.range(0, chapterUrls.size())
+                .mapToObj(i -> makeAbsoluteUrl(chapterUrls.get(chapterUrls.size() - 1 - i)))
+                .peek(chapterUrl -> BatotoScraper.log.debug("Found chapter URL: {}", chapterUrl))
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, String> extractChapterTitles(Document doc) {
+        return doc.select("a.visited.chapt")
+                .stream()
+                .collect(Collectors.toMap(
+                        e -> makeAbsoluteUrl(e.attr("href").trim()),
+                        e -> e.text().trim(),
+                        (first, second) -> first));
     }
 
     private String extractMetaTag(Document doc, String property) {
@@ -181,51 +386,18 @@ public class BatotoScraper implements MangaScraper {
     }
 
     private Integer extractSeriesId(Document doc) {
-        return extractScript(doc, "subjectIid")
-                .flatMap(script -> BatotoScraper.SERIES_ID_PATTERN.matcher(script)
-                        .results()
-                        .findFirst()
-                        .map(match -> Integer.valueOf(match.group(1).trim())))
-                .orElse(null);
-    }
-
-    private String extractChapterId(Document doc) {
-        return extractScript(doc, "episodeIid")
-                .flatMap(script -> BatotoScraper.CHAPTER_ID_PATTERN.matcher(script)
-                        .results()
-                        .findFirst()
-                        .map(match -> match.group(1).trim()))
+        return BatotoScraper.SERIES_SCRIPTS.extract(doc)
+                .get("subjectIid")
+                .map(Integer::valueOf)
                 .orElse(null);
     }
 
-    private String extractChapterName(Document doc) {
-        return extractScript(doc, "local_text_epi")
-                .flatMap(script -> BatotoScraper.CHAPTER_NAME_PATTERN.matcher(script)
-                        .results()
-                        .findFirst()
-                        .map(match -> match.group(1).trim()))
-                .orElse("Unknown Chapter");
-    }
-
-    private String extractHref(Document doc, String selector) {
-        return makeAbsoluteUrl(doc.select(selector).attr("href").trim());
-    }
-
-    private List<String> extractImageUrls(Document doc) {
-        return extractScript(doc, "imgHttps")
-                .flatMap(script -> Optional.of(BatotoScraper.IMAGE_VARIABLE_PATTERN.matcher(script)))
+    private List<String> parseImageUrls(String imageArray) {
+        return Arrays.stream(imageArray.split(","))
+                .map(BatotoScraper.IMAGE_URL_PATTERN::matcher)
                 .filter(Matcher::find)
-                .map(matcher -> matcher.group(1).split(","))
-                .map(urls -> Arrays.stream(urls)
-                        .map(BatotoScraper.IMAGE_URL_PATTERN::matcher)
-                        .filter(Matcher::find)
-                        .map(m -> m.group(1).trim())
-                        .collect(Collectors.toList()))
-                .orElse(List.of());
-    }
-
-    private Optional<String> extractScript(Document doc, String data) {
-        return Optional.ofNullable(doc.select("script:containsData(" + data + ")").html());
+                .map(m -> m.group(1).trim())
+                .collect(Collectors.toList());
     }
 
     private byte[] downloadCoverBytes(String coverUrl) {
@@ -0,0 +1,14 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+class ChapterPage {
+    private String seriesUrl;
+    private String id;
+    private String name;
+    private String description = "";
+    private List<String> imageUrls;
+}
@@ -0,0 +1,81 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.model.Chapter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scrapes chapter pages concurrently while handing the results out in series
+ * order. At most {@code maxConcurrentScrapes} pages are fetched at once and
+ * only a small window of finished chapters is held back waiting for a slower
+ * predecessor.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class ChapterScrapeStage {
+
+    @FunctionalInterface
+    interface ChapterTask {
+        Chapter scrape(String url, int index);
+    }
+
+    private final AppConfig config;
+
+    List<Chapter> scrape(List<String> chapterUrls, ChapterTask task) {
+        List<Chapter> chapters = new ArrayList<>(chapterUrls.size());
+        scrape(chapterUrls, task, chapters::add);
+        return chapters;
+    }
+
+    void scrape(List<String> chapterUrls, ChapterTask task, Consumer<Chapter> sink) {
+        if (chapterUrls.isEmpty()) {
+            return;
+        }
+
+        int concurrency = Math.max(1, Math.min(config.getMaxConcurrentScrapes(), chapterUrls.size()));
+        int windowSize = concurrency * 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        Deque<CompletableFuture<Chapter>> window = new ArrayDeque<>(windowSize);
+
+        try {
+            int next = 0;
+            while (next < chapterUrls.size() || !window.isEmpty()) {
+                while (next < chapterUrls.size() && window.size() < windowSize) {
+                    String url = chapterUrls.get(next);
+                    int index = next++;
+                    window.add(CompletableFuture.supplyAsync(() -> scrapeChapter(task, url, index), executor));
+                }
+
+                Chapter chapter = window.poll().join();
+                if (chapter != null) {
+                    sink.accept(chapter);
+                }
+            }
+        } finally {
+            window.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+    private Chapter scrapeChapter(ChapterTask task, String url, int index) {
+        try {
+            return task.scrape(url, index);
+        } catch (RuntimeException e) {
+            ChapterScrapeStage.log.warn("Skipping chapter {} after scrape failure: {}", url, e.getMessage());
+            ChapterScrapeStage.log.debug("Chapter scrape failure", e);
+            return null;
+        }
+    }
+
+}
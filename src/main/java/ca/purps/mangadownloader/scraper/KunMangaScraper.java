@@ -1,10 +1,15 @@
 package ca.purps.mangadownloader.scraper;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -16,38 +21,160 @@ import org.jsoup.nodes.Element;
 
 import ca.purps.mangadownloader.config.AppConfig;
 import ca.purps.mangadownloader.exception.ScraperException;
+import ca.purps.mangadownloader.http.HttpStatusException;
+import ca.purps.mangadownloader.http.RetryPolicy;
+import ca.purps.mangadownloader.metrics.Histogram;
+import ca.purps.mangadownloader.metrics.Metrics;
 import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.ChapterStream;
 import ca.purps.mangadownloader.model.Series;
 import ca.purps.mangadownloader.model.Status;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
 @Slf4j
-@RequiredArgsConstructor
 public class KunMangaScraper implements MangaScraper {
 
+    private static final Histogram PAGE_SECONDS = Metrics.histogram("manga_stage_seconds", "Time spent per pipeline stage", "stage", "scrape");
+
     private final AppConfig config;
     private final OkHttpClient httpClient;
+    private final ChapterScrapeStage scrapeStage;
+    private final RetryPolicy retryPolicy;
+
+    public KunMangaScraper(AppConfig config, OkHttpClient httpClient) {
+        this(config, httpClient, new RetryPolicy(config));
+    }
+
+    public KunMangaScraper(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy) {
+        this.config = config;
+        this.httpClient = httpClient;
+        this.retryPolicy = retryPolicy;
+        this.scrapeStage = new ChapterScrapeStage(config);
+    }
 
     public static final String BASE_URL = "https://kunmanga.com/";
 
     private static final Pattern CHAPTER_NAME_PATTERN = Pattern.compile("\"chapter\":\"(chapter-[\\d\\-]+)\"");
     private static final Pattern CHAPTER_ID_PATTERN = Pattern.compile("\"chapter\":\"chapter-([\\d\\-]+)\"");
+    private static final Pattern CHAPTER_URL_ID_PATTERN = Pattern.compile("/chapter-([\\d\\-]+)");
+
+    private static final ScriptVariableExtractor CHAPTER_SCRIPTS = ScriptVariableExtractor.builder()
+            .variable("chapterName", "query_vars", KunMangaScraper.CHAPTER_NAME_PATTERN)
+            .variable("chapterId", "query_vars", KunMangaScraper.CHAPTER_ID_PATTERN)
+            .build();
+
+    public static class Provider implements ScraperProvider {
+
+        @Override
+        public Set<String> getHosts() {
+            return Set.of("kunmanga.com");
+        }
+
+        @Override
+        public UrlType classify(String url) {
+            return Provider.classifyUrl(url);
+        }
+
+        @Override
+        public MangaScraper create(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy) {
+            return new KunMangaScraper(config, httpClient, retryPolicy);
+        }
+
+        private static UrlType classifyUrl(String url) {
+            if (url.contains("/chapter")) {
+                return UrlType.CHAPTER;
+            }
+            if (url.contains("/manga/")) {
+                return UrlType.SERIES;
+            }
+            return UrlType.UNSUPPORTED;
+        }
+
+    }
 
     @Override
-    public Series scrapeSeries(String url) {
+    public UrlType classify(String url) {
+        return Provider.classifyUrl(url);
+    }
+
+    @Override
+    public Series scrapeSeries(String url, Predicate<String> isCompleted) {
         KunMangaScraper.log.info("Scraping series from URL: {}", url);
         Document doc = fetchPage(url);
 
+        List<Chapter> chapters = new ArrayList<>();
+        Series series = buildSeries(url, doc, chapters);
+
         KunMangaScraper.log.debug("Extracting chapters from series page");
+        List<String> chapterUrls = extractOrderedChapterUrls(doc);
 
-        String coverUrl = findLargestResolution(extractSrcsetUrls(doc, "div.summary_image img"));
+        Map<String, String> chapterTitles = extractChapterTitles(doc);
+
+        chapters.addAll(scrapeStage.scrape(chapterUrls, (chapterUrl, i) -> scrapeChapter(series, chapterUrl, i, chapterTitles, isCompleted)));
+
+        KunMangaScraper.log.info("Found {} chapters for series ({} already downloaded)", chapters.size(), chapters.stream().filter(Chapter::isStub).count());
+        if (chapters.size() < chapterUrls.size()) {
+            KunMangaScraper.log.warn("Skipped {} chapters that could not be scraped", chapterUrls.size() - chapters.size());
+        }
+
+        KunMangaScraper.log.info("Successfully scraped series: {}", series.getTitle());
+        return series;
+    }
+
+    @Override
+    public Series streamSeries(String url, Predicate<String> isCompleted) {
+        KunMangaScraper.log.info("Streaming series from URL: {}", url);
+        Document doc = fetchPage(url);
+        List<String> chapterUrls = extractOrderedChapterUrls(doc);
+        Map<String, String> chapterTitles = extractChapterTitles(doc);
+
+        List<Chapter> chapters = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Series> seriesRef = new AtomicReference<>();
+
+        ChapterStream stream = new ChapterStream(config.getMaxPendingChapters(), chapterUrls, sink -> scrapeStage.scrape(
+                chapterUrls,
+                (chapterUrl, i) -> scrapeChapter(seriesRef.get(), chapterUrl, i, chapterTitles, isCompleted),
+                chapter -> {
+                    chapters.add(chapter);
+                    sink.accept(chapter);
+                }));
+
+        Series series = buildSeries(url, doc, chapters, stream);
+        seriesRef.set(series);
+        return series;
+    }
+
+    @Override
+    public Chapter scrapeChapter(String url) {
+        KunMangaScraper.log.info("Scraping single chapter from URL: {}", url);
+        String seriesUrl = url.replaceAll("/chapter-[\\d\\-]+/?$", "");
+        Document seriesDoc = fetchPage(seriesUrl);
 
         List<Chapter> chapters = new ArrayList<>();
-        Series series = Series.builder()
+        Series series = buildSeries(seriesUrl, seriesDoc, chapters);
+
+        List<String> chapterUrls = extractOrderedChapterUrls(seriesDoc);
+        int index = indexOfChapter(chapterUrls, url);
+        if (index < 0) {
+            throw new ScraperException("Chapter not found in series");
+        }
+
+        Chapter chapter = scrapeChapter(series, chapterUrls.get(index), index);
+        chapters.add(chapter);
+        return chapter;
+    }
+
+    private Series buildSeries(String url, Document doc, List<Chapter> chapters) {
+        return buildSeries(url, doc, chapters, null);
+    }
+
+    private Series buildSeries(String url, Document doc, List<Chapter> chapters, ChapterStream chapterStream) {
+        String coverUrl = findLargestResolution(extractSrcsetUrls(doc, "div.summary_image img"));
+
+        return Series.builder()
                 .url(url)
                 .id(0)
                 .title(extractMetaTag(doc, "og:title"))
@@ -57,54 +184,60 @@ public class KunMangaScraper implements MangaScraper {
                 .coverBytes(downloadCoverBytes(makeAbsoluteUrl(coverUrl)))
                 .status(extractStatus(doc))
                 .chapters(chapters)
+                .chapterStream(chapterStream)
                 .build();
-
-        List<String> chapterUrls = extractChapterUrls(doc);
-
-        chapters.addAll(IntStream.range(0, chapterUrls.size())
-                .mapToObj(i -> {
-                    String chapterUrl = makeAbsoluteUrl(chapterUrls.get(chapterUrls.size() - 1 - i));
-                    KunMangaScraper.log.debug("Found chapter URL: {}", chapterUrl);
-                    Chapter chapter = scrapeChapter(series, chapterUrl, i);
-                    return chapter;
-                })
-                .collect(Collectors.toList()));
-
-        KunMangaScraper.log.info("Found {} chapters for series", chapters.size());
-
-        KunMangaScraper.log.info("Successfully scraped series: {}", series.getTitle());
-        return series;
     }
 
-    @Override
-    public Chapter scrapeChapter(String url) {
-        Series series = scrapeSeries(url.replaceAll("/chapter-\\d+/?$", ""));
-        return series.getChapters()
-                .stream()
-                .filter(chapter -> chapter.getUrl().equals(url))
-                .findFirst()
-                .orElseThrow(() -> new ScraperException("Chapter not found in series"));
+    private Chapter scrapeChapter(Series series, String url, int index, Map<String, String> chapterTitles, Predicate<String> isCompleted) {
+        if (isCompleted.test(url)) {
+            KunMangaScraper.log.debug("Chapter already downloaded, not fetching: {}", url);
+            return buildStub(series, url, index, chapterTitles.getOrDefault(url, "Unknown Chapter"));
+        }
+        return scrapeChapter(series, url, index);
     }
 
     private Chapter scrapeChapter(Series series, String url, int index) {
         KunMangaScraper.log.info("Scraping chapter from URL: {}", url);
-        Document doc = fetchPage(url);
+        ChapterPage page = fetchPage(url, body -> readChapterPage(body.charStream(), url));
 
-        String chapterName = extractChapterName(doc);
-        List<String> imageUrls = extractImageUrls(doc, "wp-manga-chapter-img");
+        KunMangaScraper.log.debug("Found {} images in chapter {}", page.getImageUrls().size(), page.getName());
+        return Chapter.builder()
+                .series(series)
+                .url(url)
+                .id(page.getId())
+                .name(page.getName())
+                .description(page.getDescription())
+                .imageUrls(page.getImageUrls())
+                .seriesIndex(index)
+                .build();
+    }
 
-        KunMangaScraper.log.debug("Found {} images in chapter {}", imageUrls.size(), chapterName);
+    private Chapter buildStub(Series series, String url, int index, String title) {
+        Matcher matcher = KunMangaScraper.CHAPTER_URL_ID_PATTERN.matcher(url);
         return Chapter.builder()
                 .series(series)
                 .url(url)
-                .id(extractChapterId(doc))
-                .name(chapterName)
-                .description(extractMetaTag(doc, "og:description"))
-                .imageUrls(imageUrls)
+                .id(matcher.find() ? matcher.group(1) : String.valueOf(index))
+                .name(title)
+                .description("")
+                .imageUrls(List.of())
                 .seriesIndex(index)
+                .stub(true)
                 .build();
     }
 
+    private int indexOfChapter(List<String> chapterUrls, String url) {
+        String target = normalizeUrl(makeAbsoluteUrl(url));
+        return IntStream.range(0, chapterUrls.size())
+                .filter(i -> normalizeUrl(chapterUrls.get(i)).equals(target))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    private String normalizeUrl(String url) {
+        return url.replaceAll("[?#].*$", "").replaceAll("/+$", "");
+    }
+
     private String findLargestResolution(List<String> urls) {
         Pattern pattern = Pattern.compile(".*-(\\d+)x(\\d+)\\.[a-zA-Z]+$");
         String nonResolution = null;
@@ -143,34 +276,99 @@ public class KunMangaScraper implements MangaScraper {
     }
 
     private Document fetchPage(String url) {
+        return fetchPage(url, body -> Jsoup.parse(body.string(), url));
+    }
+
+    private <T> T fetchPage(String url, PageHandler<T> handler) {
         KunMangaScraper.log.debug("Fetching page: {}", url);
 
+        long start = System.nanoTime();
         try {
             String absoluteUrl = makeAbsoluteUrl(url);
             KunMangaScraper.log.debug("Making request to: {}", absoluteUrl);
 
-            Request request = new Request.Builder()
-                    .url(absoluteUrl)
-                    .header("User-Agent", config.getUserAgent())
-                    .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    throw new ScraperException(String.format("Failed to fetch page: {} (Status code: {})", url, response.code()));
-                }
-                KunMangaScraper.log.debug("Successfully fetched page: {} (Status code: {})", url, response.code());
-                return Jsoup.parse(response.body().string(), url);
-            }
+            return retryPolicy.execute(absoluteUrl, () -> fetchPageOnce(absoluteUrl, handler));
         } catch (IOException e) {
             throw new ScraperException(String.format("Error fetching page: %s", url), e);
+        } finally {
+            KunMangaScraper.PAGE_SECONDS.observeSince(start);
         }
     }
 
-    private List<String> extractChapterUrls(Document doc) {
-        return doc.select("ul.version-chap li.wp-manga-chapter a")
+    private <T> T fetchPageOnce(String url, PageHandler<T> handler) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", config.getUserAgent())
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw HttpStatusException.from(response);
+            }
+            KunMangaScraper.log.debug("Successfully fetched page: {} (Status code: {})", url, response.code());
+            if (response.networkResponse() != null && response.networkResponse().code() == 304) {
+                KunMangaScraper.log.debug("Page unchanged, served from cache: {}", url);
+            }
+            return handler.handle(response.body());
+        }
+    }
+
+    private ChapterPage readChapterPage(Reader reader, String url) throws IOException {
+        ChapterPage page = new ChapterPage();
+        ScriptVariableExtractor.Result scripts = KunMangaScraper.CHAPTER_SCRIPTS.newResult();
+        List<String> imageUrls = new ArrayList<>();
+        boolean[] contentComplete = { false };
+
+        StreamingPageReader.read(reader, url, element -> {
+            switch (element.normalName()) {
+                case "meta" -> {
+                    if ("og:description".equals(element.attr("property"))) {
+                        page.setDescription(element.attr("content").trim());
+                    }
+                }
+                case "img" -> {
+                    if (element.hasClass("wp-manga-chapter-img")) {
+                        imageUrls.add(element.attr("src").trim());
+                    }
+                }
+                case "div" -> {
+                    if (element.hasClass("reading-content")) {
+                        contentComplete[0] = true;
+                    }
+                }
+                case "script" -> scripts.accept(element.data());
+                default -> {
+                }
+            }
+
+            return scripts.isComplete() && contentComplete[0];
+        });
+
+        page.setId(scripts.get("chapterId").orElse(null));
+        page.setName(scripts.get("chapterName").orElse("Unknown Chapter"));
+        page.setImageUrls(imageUrls);
+        return page;
+    }
+
+    private List<String> extractOrderedChapterUrls(Document doc) {
+        List<String> chapterUrls = doc.select("ul.version-chap li.wp-manga-chapter a")
                 .stream()
                 .map(e -> e.attr("href").trim())
                 .collect(Collectors.toList());
+
+        return IntStream.range(0, chapterUrls.size())
+                .mapToObj(i -> makeAbsoluteUrl(chapterUrls.get(chapterUrls.size() - 1 - i)))
+                .peek(chapterUrl -> KunMangaScraper.log.debug("Found chapter URL: {}", chapterUrl))
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, String> extractChapterTitles(Document doc) {
+        return doc.select("ul.version-chap li.wp-manga-chapter a")
+                .stream()
+                .collect(Collectors.toMap(
+                        e -> makeAbsoluteUrl(e.attr("href").trim()),
+                        e -> e.text().trim(),
+                        (first, second) -> first));
     }
 
     private String extractMetaTag(Document doc, String property) {
@@ -218,35 +416,6 @@ public class KunMangaScraper implements MangaScraper {
         return Status.UNKNOWN;
     }
 
-    private String extractChapterId(Document doc) {
-        return extractScript(doc, "query_vars")
-                .flatMap(script -> KunMangaScraper.CHAPTER_ID_PATTERN.matcher(script)
-                        .results()
-                        .findFirst()
-                        .map(match -> match.group(1).trim()))
-                .orElse(null);
-    }
-
-    private String extractChapterName(Document doc) {
-        return extractScript(doc, "query_vars")
-                .flatMap(script -> KunMangaScraper.CHAPTER_NAME_PATTERN.matcher(script)
-                        .results()
-                        .findFirst()
-                        .map(match -> match.group(1).trim()))
-                .orElse("Unknown Chapter");
-    }
-
-    private List<String> extractImageUrls(Document doc, String className) {
-        return doc.select("img." + className)
-                .stream()
-                .map(imgElement -> imgElement.attr("src").trim())
-                .collect(Collectors.toList());
-    }
-
-    private Optional<String> extractScript(Document doc, String data) {
-        return Optional.ofNullable(doc.select("script:containsData(" + data + ")").html());
-    }
-
     private byte[] downloadCoverBytes(String coverUrl) {
         if (coverUrl == null || coverUrl.isEmpty()) {
             return null;
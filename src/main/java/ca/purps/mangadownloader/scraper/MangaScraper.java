@@ -1,11 +1,27 @@
 package ca.purps.mangadownloader.scraper;
 
+import java.util.function.Predicate;
+
 import ca.purps.mangadownloader.model.Chapter;
 import ca.purps.mangadownloader.model.Series;
 
 public interface MangaScraper {
 
-    Series scrapeSeries(String url);
+    UrlType classify(String url);
+
+    Series scrapeSeries(String url, Predicate<String> isCompleted);
+
+    default Series scrapeSeries(String url) {
+        return scrapeSeries(url, chapterUrl -> false);
+    }
+
+    default Series streamSeries(String url, Predicate<String> isCompleted) {
+        return scrapeSeries(url, isCompleted);
+    }
+
+    default Series streamSeries(String url) {
+        return streamSeries(url, chapterUrl -> false);
+    }
 
     Chapter scrapeChapter(String url);
 
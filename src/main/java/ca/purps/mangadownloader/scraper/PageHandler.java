@@ -0,0 +1,12 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+
+@FunctionalInterface
+interface PageHandler<T> {
+
+    T handle(ResponseBody body) throws IOException;
+
+}
@@ -0,0 +1,23 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.Set;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.http.RetryPolicy;
+import okhttp3.OkHttpClient;
+
+/**
+ * Service provider for a manga source, registered in
+ * {@code META-INF/services}. Providers are kept separate from the scrapers so
+ * URLs can be routed and classified without loading any scraper class; the
+ * scraper is only built by {@link #create} once a URL actually needs it.
+ */
+public interface ScraperProvider {
+
+    Set<String> getHosts();
+
+    UrlType classify(String url);
+
+    MangaScraper create(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy);
+
+}
@@ -0,0 +1,80 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.http.RetryPolicy;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+@Slf4j
+public class ScraperRegistry {
+
+    private final AppConfig config;
+    private final OkHttpClient httpClient;
+    private final RetryPolicy retryPolicy;
+
+    private final Map<String, ScraperProvider> providersByHost = new HashMap<>();
+    private final Map<ScraperProvider, MangaScraper> scrapers = new ConcurrentHashMap<>();
+
+    private ScraperRegistry(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy, Iterable<ScraperProvider> providers) {
+        this.config = config;
+        this.httpClient = httpClient;
+        this.retryPolicy = retryPolicy;
+
+        for (ScraperProvider provider : providers) {
+            provider.getHosts().forEach(host -> {
+                ScraperProvider existing = providersByHost.putIfAbsent(normalizeHost(host), provider);
+                if (existing != null && existing != provider) {
+                    ScraperRegistry.log.warn("Host {} claimed by both {} and {}, keeping the first",
+                            host, existing.getClass().getName(), provider.getClass().getName());
+                }
+            });
+        }
+
+        ScraperRegistry.log.debug("Registered scraper hosts: {}", providersByHost.keySet());
+    }
+
+    public static ScraperRegistry load(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy) {
+        return new ScraperRegistry(config, httpClient, retryPolicy, ServiceLoader.load(ScraperProvider.class));
+    }
+
+    public static ScraperRegistry of(AppConfig config, OkHttpClient httpClient, RetryPolicy retryPolicy, Iterable<ScraperProvider> providers) {
+        return new ScraperRegistry(config, httpClient, retryPolicy, providers);
+    }
+
+    public Optional<ScraperProvider> findProvider(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(providersByHost.get(normalizeHost(httpUrl.host())));
+    }
+
+    public UrlType classify(String url) {
+        return findProvider(url)
+                .map(provider -> provider.classify(url))
+                .orElse(UrlType.UNSUPPORTED);
+    }
+
+    public MangaScraper getScraper(String url) {
+        ScraperProvider provider = findProvider(url)
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported URL: " + url));
+
+        return scrapers.computeIfAbsent(provider, p -> {
+            ScraperRegistry.log.debug("Creating scraper for {}", url);
+            return p.create(config, httpClient, retryPolicy);
+        });
+    }
+
+    private static String normalizeHost(String host) {
+        String normalized = host.toLowerCase();
+        return normalized.startsWith("www.") ? normalized.substring(4) : normalized;
+    }
+
+}
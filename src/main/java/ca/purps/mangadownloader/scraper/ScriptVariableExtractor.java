@@ -0,0 +1,102 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import lombok.Value;
+
+/**
+ * Pulls several inline script variables out of a page in a single pass. Each
+ * script is checked once per variable that is still missing, using a plain
+ * substring test before any regex runs. Extraction stops as soon as every
+ * variable has been captured.
+ */
+public class ScriptVariableExtractor {
+
+    @Value
+    private static class Variable {
+        private final String key;
+        private final String marker;
+        private final Pattern pattern;
+    }
+
+    private final List<Variable> variables;
+
+    private ScriptVariableExtractor(List<Variable> variables) {
+        this.variables = List.copyOf(variables);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Result newResult() {
+        return new Result();
+    }
+
+    public Result extract(Document doc) {
+        Result result = newResult();
+        for (Element script : doc.getElementsByTag("script")) {
+            if (result.accept(script.data())) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    public class Result {
+
+        private final Map<String, String> values = new HashMap<>();
+
+        public boolean accept(String script) {
+            for (Variable variable : variables) {
+                if (values.containsKey(variable.getKey()) || !script.contains(variable.getMarker())) {
+                    continue;
+                }
+
+                Matcher matcher = variable.getPattern().matcher(script);
+                if (matcher.find()) {
+                    values.put(variable.getKey(), matcher.group(1).trim());
+                }
+            }
+            return isComplete();
+        }
+
+        public boolean isComplete() {
+            return values.size() == variables.size();
+        }
+
+        public Optional<String> get(String key) {
+            return Optional.ofNullable(values.get(key));
+        }
+
+    }
+
+    public static class Builder {
+
+        private final List<Variable> variables = new ArrayList<>();
+
+        public Builder variable(String key, String marker, Pattern pattern) {
+            variables.add(new Variable(key, marker, pattern));
+            return this;
+        }
+
+        public Builder variable(String key, Pattern pattern) {
+            return variable(key, key, pattern);
+        }
+
+        public ScriptVariableExtractor build() {
+            return new ScriptVariableExtractor(variables);
+        }
+
+    }
+
+}
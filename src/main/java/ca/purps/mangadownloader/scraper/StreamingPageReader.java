@@ -0,0 +1,42 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Feeds each element of a page to a handler as soon as the element is
+ * complete, without building the whole document. Handled elements are removed
+ * from the partial tree straight away, and reading stops as soon as the
+ * handler reports that it has everything it needs.
+ */
+@UtilityClass
+class StreamingPageReader {
+
+    public void read(Reader reader, String baseUri, Predicate<Element> handler) throws IOException {
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(reader, baseUri)) {
+            Iterator<Element> elements = parser.iterator();
+            while (elements.hasNext()) {
+                Element element = elements.next();
+                boolean done = handler.test(element);
+                element.remove();
+
+                if (done) {
+                    parser.stop();
+                    return;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,5 @@
+package ca.purps.mangadownloader.scraper;
+
+public enum UrlType {
+    SERIES, CHAPTER, UNSUPPORTED
+}
@@ -0,0 +1,363 @@
+package ca.purps.mangadownloader.store;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Synchronized;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local cache of downloaded images shared by every chapter and series. Blobs
+ * are stored once under their SHA-256, so the credit page a group attaches to
+ * every chapter takes space once, and an index maps image URLs to blobs so a
+ * URL seen before is never requested again. The least recently used blobs are
+ * evicted once the store grows past {@code imageStoreMaxBytes}.
+ * <p>
+ * The store is off unless {@code imageStoreEnabled} is set, since it keeps a
+ * second copy of every image outside the download directory.
+ * <p>
+ * The store is an optimisation only: any failure is logged and the caller
+ * simply downloads the image as if the store were empty.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ImageStore implements AutoCloseable {
+
+    private static final String INDEX_FILE = "index.json";
+
+    private final AppConfig config;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Getter(lazy = true)
+    private final Index index = loadIndex();
+
+    private final AtomicLong requestsSaved = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong duplicateBytes = new AtomicLong();
+    private final AtomicLong bytesStored = new AtomicLong();
+
+    private boolean dirty;
+
+    @Data
+    static class Index {
+        private Map<String, String> urls = new HashMap<>();
+        private Map<String, Blob> blobs = new HashMap<>();
+
+        @JsonIgnore
+        private long totalBytes;
+    }
+
+    @Data
+    static class Blob {
+        private long size;
+        private long lastAccess;
+    }
+
+    @Value
+    public static class Stats {
+        long requestsSaved;
+        long bytesSaved;
+        long duplicateBytes;
+        long bytesStored;
+    }
+
+    /**
+     * Streams a body into the store while it is being read by someone else.
+     * The blob is only added once {@link #commit()} is called after the body
+     * has been read to the end.
+     */
+    public class Recorder implements AutoCloseable {
+
+        private final String url;
+        private final Path temp;
+        private final DigestOutputStream out;
+
+        private boolean committed;
+
+        private Recorder(String url) throws IOException {
+            this.url = url;
+            this.temp = Files.createTempFile(createDirectory(config.getImageStorePath()), "blob-", ".tmp");
+            this.out = new DigestOutputStream(Files.newOutputStream(temp), newDigest());
+        }
+
+        public InputStream tee(InputStream body) {
+            return new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        out.write(b);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        out.write(buffer, offset, read);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        public void commit() {
+            try {
+                out.close();
+                add(url, temp, HexFormat.of().formatHex(out.getMessageDigest().digest()));
+                committed = true;
+            } catch (IOException e) {
+                ImageStore.log.warn("Failed to store image {}: {}", url, e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+                if (!committed) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException e) {
+                ImageStore.log.debug("Failed to discard recorded image {}", temp, e);
+            }
+        }
+
+    }
+
+    public boolean isEnabled() {
+        return config.isImageStoreEnabled();
+    }
+
+    /**
+     * Returns the stored copy of {@code url}. Callers report a successful
+     * reuse with {@link #reused(Path)}.
+     */
+    public Optional<Path> lookup(String url) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        return touch(url);
+    }
+
+    /**
+     * Counts the request saved by using {@code blob} instead of downloading.
+     */
+    public void reused(Path blob) {
+        try {
+            bytesSaved.addAndGet(Files.size(blob));
+            requestsSaved.incrementAndGet();
+        } catch (IOException e) {
+            ImageStore.log.debug("Failed to read size of {}", blob, e);
+        }
+    }
+
+    /**
+     * Adds a downloaded image file to the store. The file itself is left where
+     * it is.
+     */
+    public void put(String url, Path file) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try {
+            Path temp = Files.createTempFile(createDirectory(config.getImageStorePath()), "blob-", ".tmp");
+            MessageDigest digest = newDigest();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest);
+                    OutputStream out = Files.newOutputStream(temp)) {
+                in.transferTo(out);
+            }
+            add(url, temp, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException e) {
+            ImageStore.log.warn("Failed to store image {}: {}", url, e.getMessage());
+        }
+    }
+
+    public Recorder record(String url) throws IOException {
+        return new Recorder(url);
+    }
+
+    public Stats getStats() {
+        return new Stats(requestsSaved.get(), bytesSaved.get(), duplicateBytes.get(), bytesStored.get());
+    }
+
+    public void logStats() {
+        if (!isEnabled()) {
+            return;
+        }
+        Stats stats = getStats();
+        ImageStore.log.info("Image store saved {} requests ({} bytes) and {} duplicate bytes, stored {} new bytes",
+                stats.getRequestsSaved(), stats.getBytesSaved(), stats.getDuplicateBytes(), stats.getBytesStored());
+    }
+
+    @Synchronized
+    public void flush() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            Path indexPath = createDirectory(config.getImageStorePath()).resolve(ImageStore.INDEX_FILE);
+            Path temp = indexPath.resolveSibling(ImageStore.INDEX_FILE + ".tmp");
+            mapper.writeValue(temp.toFile(), getIndex());
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            ImageStore.log.warn("Failed to save image store index: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    @Synchronized
+    private Optional<Path> touch(String url) {
+        String hash = getIndex().getUrls().get(url);
+        Blob blob = hash != null ? getIndex().getBlobs().get(hash) : null;
+        if (blob == null) {
+            return Optional.empty();
+        }
+
+        Path path = blobPath(hash);
+        if (!Files.isRegularFile(path)) {
+            getIndex().setTotalBytes(getIndex().getTotalBytes() - blob.getSize());
+            getIndex().getBlobs().remove(hash);
+            getIndex().getUrls().values().removeIf(hash::equals);
+            dirty = true;
+            return Optional.empty();
+        }
+
+        blob.setLastAccess(System.currentTimeMillis());
+        dirty = true;
+        return Optional.of(path);
+    }
+
+    @Synchronized
+    private void add(String url, Path temp, String hash) throws IOException {
+        Path path = blobPath(hash);
+        long size = Files.size(temp);
+
+        try {
+            if (getIndex().getBlobs().containsKey(hash) && Files.isRegularFile(path)) {
+                duplicateBytes.addAndGet(size);
+                Files.delete(temp);
+            } else {
+                Files.createDirectories(path.getParent());
+                try {
+                    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    Files.delete(temp);
+                }
+                bytesStored.addAndGet(size);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        Blob blob = getIndex().getBlobs().get(hash);
+        if (blob == null) {
+            blob = new Blob();
+            blob.setSize(size);
+            getIndex().getBlobs().put(hash, blob);
+            getIndex().setTotalBytes(getIndex().getTotalBytes() + size);
+        }
+        blob.setLastAccess(System.currentTimeMillis());
+        getIndex().getUrls().put(url, hash);
+        dirty = true;
+
+        evict();
+    }
+
+    private void evict() {
+        long total = getIndex().getTotalBytes();
+        if (total <= config.getImageStoreMaxBytes()) {
+            return;
+        }
+
+        List<Map.Entry<String, Blob>> blobs = new ArrayList<>(getIndex().getBlobs().entrySet());
+        blobs.sort(Comparator.comparingLong(entry -> entry.getValue().getLastAccess()));
+
+        Set<String> evicted = new HashSet<>();
+        for (Map.Entry<String, Blob> entry : blobs) {
+            if (total <= config.getImageStoreMaxBytes()) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(blobPath(entry.getKey()));
+            } catch (IOException e) {
+                ImageStore.log.debug("Failed to evict blob {}", entry.getKey(), e);
+                continue;
+            }
+            total -= entry.getValue().getSize();
+            evicted.add(entry.getKey());
+        }
+
+        getIndex().setTotalBytes(total);
+        evicted.forEach(getIndex().getBlobs()::remove);
+        getIndex().getUrls().values().removeIf(evicted::contains);
+        ImageStore.log.debug("Evicted {} blobs from the image store", evicted.size());
+    }
+
+    private Index loadIndex() {
+        Path indexPath = config.getImageStorePath().resolve(ImageStore.INDEX_FILE);
+        try {
+            if (Files.exists(indexPath)) {
+                Index index = mapper.readValue(indexPath.toFile(), Index.class);
+                index.setTotalBytes(index.getBlobs().values().stream().mapToLong(Blob::getSize).sum());
+                return index;
+            }
+        } catch (IOException e) {
+            ImageStore.log.warn("Failed to load image store index {}, starting empty: {}", indexPath, e.getMessage());
+        }
+        return new Index();
+    }
+
+    private Path blobPath(String hash) {
+        return config.getImageStorePath().resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static Path createDirectory(Path path) throws IOException {
+        return Files.createDirectories(path);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
@@ -4,12 +4,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.List;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import ca.purps.mangadownloader.config.AppConfig;
 import ca.purps.mangadownloader.exception.TrackerException;
+import ca.purps.mangadownloader.metrics.Histogram;
+import ca.purps.mangadownloader.metrics.Metrics;
 import ca.purps.mangadownloader.model.Chapter;
 import ca.purps.mangadownloader.model.Series;
 import lombok.Getter;
@@ -19,6 +22,8 @@ import lombok.Synchronized;
 @RequiredArgsConstructor
 public class DownloadTracker implements Tracker {
 
+    private static final Histogram SAVE_SECONDS = Metrics.histogram("manga_stage_seconds", "Time spent per pipeline stage", "stage", "track");
+
     private final AppConfig config;
 
     private final ObjectMapper mapper = new ObjectMapper();
@@ -80,39 +85,51 @@ public class DownloadTracker implements Tracker {
 
         ObjectNode chaptersNode = (ObjectNode) seriesEntry.get("chapters");
 
-        return series.getChapters()
+        List<String> chapterUrls = series.getChapterStream() != null
+                ? series.getChapterStream().getChapterUrls()
+                : series.getChapters().stream().map(Chapter::getUrl).toList();
+        return chapterUrls
                 .stream()
-                .allMatch(chapter -> chaptersNode.has(chapter.getUrl()) &&
-                        chaptersNode.get(chapter.getUrl()).get("completed").asBoolean());
+                .allMatch(chapterUrl -> chaptersNode.has(chapterUrl) &&
+                        chaptersNode.get(chapterUrl).get("completed").asBoolean());
     }
 
     @Override
     @Synchronized
     public boolean isChapterDownloaded(Chapter chapter) {
+        return isChapterDownloaded(chapter.getSeries().getUrl(), chapter.getUrl());
+    }
+
+    @Override
+    @Synchronized
+    public boolean isChapterDownloaded(String seriesUrl, String chapterUrl) {
         if (!config.getSkipExisting()) {
             return false;
         }
 
         ObjectNode seriesNode = (ObjectNode) getData().get("series");
-        ObjectNode seriesEntry = (ObjectNode) seriesNode.get(chapter.getSeries().getUrl());
+        ObjectNode seriesEntry = (ObjectNode) seriesNode.get(seriesUrl);
 
         if (seriesEntry == null || !seriesEntry.hasNonNull("chapters")) {
             return false;
         }
 
         ObjectNode chaptersNode = (ObjectNode) seriesEntry.get("chapters");
-        ObjectNode chapterNode = (ObjectNode) chaptersNode.get(chapter.getUrl());
+        ObjectNode chapterNode = (ObjectNode) chaptersNode.get(chapterUrl);
 
         return chapterNode != null && chapterNode.get("completed").asBoolean();
     }
 
     private void saveTracker() {
+        long start = System.nanoTime();
         try {
             Path historyFilePath = config.getHistoryFilePath();
             Files.createDirectories(historyFilePath.getParent());
             mapper.writerWithDefaultPrettyPrinter().writeValue(historyFilePath.toFile(), getData());
         } catch (IOException e) {
             throw new TrackerException("Failed to save download tracker", e);
+        } finally {
+            DownloadTracker.SAVE_SECONDS.observeSince(start);
         }
     }
 
@@ -11,4 +11,6 @@ public interface Tracker {
 
     public boolean isChapterDownloaded(Chapter chapter);
 
+    public boolean isChapterDownloaded(String seriesUrl, String chapterUrl);
+
 }
@@ -21,22 +21,7 @@ public class ProcessHelper {
     }
 
     public ProcessResult run(AppConfig config, String command) throws IOException {
-        ProcessBuilder processBuilder = new ProcessBuilder();
-
-        String venvPath = config.getPythonEnvPath();
-        if (!venvPath.isBlank() && command.contains("python")) {
-            ProcessHelper.log.info("Using virtual environment: {}", venvPath);
-
-            if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                String fullCommand = "cmd.exe /c \"" + venvPath + "\\Scripts\\activate.bat && " + command + "\"";
-                processBuilder.command("cmd.exe", "/c", fullCommand);
-            } else {
-                String fullCommand = "source " + venvPath + "/bin/activate && " + command;
-                processBuilder.command("bash", "-c", fullCommand);
-            }
-        } else {
-            processBuilder.command(command.split(" "));
-        }
+        ProcessBuilder processBuilder = builder(config, command);
 
         ProcessHelper.log.debug("Executing Command: {}", String.join(" ", processBuilder.command()));
 
@@ -70,4 +55,29 @@ public class ProcessHelper {
         return new ProcessResult(exitCode, output.toString(), errorOutput.toString());
     }
 
+    /**
+     * Prepares {@code command}, activating {@code pythonEnvPath} first when a
+     * Python command runs inside a virtual environment.
+     */
+    public ProcessBuilder builder(AppConfig config, String command) {
+        ProcessBuilder processBuilder = new ProcessBuilder();
+
+        String venvPath = config.getPythonEnvPath();
+        if (!venvPath.isBlank() && command.contains("python")) {
+            ProcessHelper.log.info("Using virtual environment: {}", venvPath);
+
+            if (System.getProperty("os.name").toLowerCase().contains("win")) {
+                String fullCommand = "cmd.exe /c \"" + venvPath + "\\Scripts\\activate.bat && " + command + "\"";
+                processBuilder.command("cmd.exe", "/c", fullCommand);
+            } else {
+                String fullCommand = "source " + venvPath + "/bin/activate && " + command;
+                processBuilder.command("bash", "-c", fullCommand);
+            }
+        } else {
+            processBuilder.command(command.split(" "));
+        }
+
+        return processBuilder;
+    }
+
 }
@@ -0,0 +1,66 @@
+package ca.purps.mangadownloader.utility;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Chooses how each CBZ or EPUB entry is written. JPEG, PNG, WebP and the like are
+ * already compressed, so running DEFLATE over them burns CPU to save a
+ * fraction of a percent; they are stored as they are. Anything else, such as
+ * a text sidecar, is still deflated.
+ */
+@UtilityClass
+public class ZipEntries {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "webp", "gif", "avif");
+
+    public static boolean isStored(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && ZipEntries.COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Creates the entry for {@code name}. A stored entry needs its size and
+     * CRC before any data is written, so both must be known up front.
+     */
+    public static ZipEntry create(String name, long size, long crc) {
+        ZipEntry entry = new ZipEntry(name);
+        if (isStored(name)) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds {@code file} under {@code name}, reading a stored page once to
+     * learn its CRC and writing it from memory.
+     */
+    public static void addFile(ZipOutputStream zos, String name, Path file) throws IOException {
+        if (!isStored(name)) {
+            zos.putNextEntry(new ZipEntry(name));
+            Files.copy(file, zos);
+            zos.closeEntry();
+            return;
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        zos.putNextEntry(create(name, bytes.length, crc.getValue()));
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+
+}
@@ -0,0 +1,367 @@
+package ca.purps.mangadownloader.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Rewrites a few entries of an existing zip and copies the rest as they are.
+ * Untouched entries keep their compressed bytes and CRC and move across with
+ * a channel transfer, so nothing is inflated or deflated again and the cost
+ * of a rewrite follows the size of what changed, not of the archive.
+ * <p>
+ * Only the central directory and the entries that are read or replaced are
+ * loaded into memory. Replaced entries keep their place and timestamp, and
+ * are stored or deflated as {@link ZipEntries} decides. ZIP64 archives are
+ * not supported.
+ */
+public class ZipRewriter implements AutoCloseable {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+
+    private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+    private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+
+    private final Path source;
+    private final FileChannel channel;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private static final class Entry {
+        private byte[] name;
+        private int versionMadeBy;
+        private int versionNeeded;
+        private int flags;
+        private int method;
+        private int time;
+        private int date;
+        private long crc;
+        private long compressedSize;
+        private long size;
+        private byte[] extra;
+        private byte[] comment;
+        private int internalAttributes;
+        private long externalAttributes;
+        private long offset;
+        private long targetOffset;
+        private byte[] replacement;
+    }
+
+    public ZipRewriter(Path source) throws IOException {
+        this.source = source;
+        this.channel = FileChannel.open(source, StandardOpenOption.READ);
+        try {
+            readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public List<String> getNames() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * Returns the uncompressed content of {@code name}.
+     */
+    public byte[] read(String name) throws IOException {
+        Entry entry = find(name);
+        if (entry.replacement != null) {
+            return entry.replacement;
+        }
+        ByteBuffer data = ByteBuffer.allocate(Math.toIntExact(entry.compressedSize));
+        readFully(data, dataOffset(entry));
+
+        if (entry.method == ZipEntry.STORED) {
+            return data.array();
+        }
+        if (entry.method != ZipEntry.DEFLATED) {
+            throw new ZipException(String.format("Unsupported compression method %d for %s in %s", entry.method, name, source));
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data.array());
+            byte[] content = new byte[Math.toIntExact(entry.size)];
+            int inflated = 0;
+            while (inflated < content.length && !inflater.finished()) {
+                int count = inflater.inflate(content, inflated, content.length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != content.length) {
+                throw new ZipException(String.format("Truncated entry %s in %s", name, source));
+            }
+            return content;
+        } catch (DataFormatException e) {
+            throw new ZipException(String.format("Corrupt entry %s in %s: %s", name, source, e.getMessage()));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Replaces the content of the existing entry {@code name}.
+     */
+    public void replace(String name, byte[] content) throws ZipException {
+        find(name).replacement = content;
+    }
+
+    /**
+     * Writes the archive, with its replacements, to {@code target}.
+     */
+    public void writeTo(Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            for (Entry entry : entries.values()) {
+                long offset = out.position();
+                if (entry.replacement != null) {
+                    writeReplacement(out, entry);
+                } else {
+                    writeLocalHeader(out, entry);
+                    long dataOffset = dataOffset(entry);
+                    long copied = 0;
+                    while (copied < entry.compressedSize) {
+                        long count = channel.transferTo(dataOffset + copied, entry.compressedSize - copied, out);
+                        if (count <= 0) {
+                            throw new ZipException("Unexpected end of " + source);
+                        }
+                        copied += count;
+                    }
+                }
+                entry.targetOffset = offset;
+            }
+
+            long centralOffset = out.position();
+            for (Entry entry : entries.values()) {
+                writeCentralHeader(out, entry);
+            }
+            long centralSize = out.position() - centralOffset;
+
+            ByteBuffer end = buffer(ZipRewriter.END_SIZE);
+            end.putInt(ZipRewriter.END_OF_CENTRAL_DIRECTORY)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) entries.size())
+                    .putShort((short) entries.size())
+                    .putInt((int) centralSize)
+                    .putInt((int) centralOffset)
+                    .putShort((short) 0);
+            write(out, end.flip());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeReplacement(FileChannel out, Entry entry) throws IOException {
+        byte[] content = entry.replacement;
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        byte[] data = content;
+        String name = new String(entry.name, StandardCharsets.UTF_8);
+        if (ZipEntries.isStored(name) || "mimetype".equals(name)) {
+            entry.method = ZipEntry.STORED;
+            entry.versionNeeded = 10;
+        } else {
+            data = deflate(content);
+            entry.method = ZipEntry.DEFLATED;
+            entry.versionNeeded = 20;
+        }
+        entry.crc = crc.getValue();
+        entry.size = content.length;
+        entry.compressedSize = data.length;
+
+        writeLocalHeader(out, entry);
+        write(out, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Writes a local header from the central directory record, with sizes
+     * and CRC filled in so no data descriptor has to follow.
+     */
+    private void writeLocalHeader(FileChannel out, Entry entry) throws IOException {
+        entry.flags &= ~ZipRewriter.DATA_DESCRIPTOR_FLAG;
+
+        ByteBuffer header = buffer(ZipRewriter.LOCAL_HEADER_SIZE + entry.name.length);
+        header.putInt(ZipRewriter.LOCAL_HEADER)
+                .putShort((short) entry.versionNeeded)
+                .putShort((short) entry.flags)
+                .putShort((short) entry.method)
+                .putShort((short) entry.time)
+                .putShort((short) entry.date)
+                .putInt((int) entry.crc)
+                .putInt((int) entry.compressedSize)
+                .putInt((int) entry.size)
+                .putShort((short) entry.name.length)
+                .putShort((short) 0)
+                .put(entry.name);
+        write(out, header.flip());
+    }
+
+    private void writeCentralHeader(FileChannel out, Entry entry) throws IOException {
+        ByteBuffer header = buffer(ZipRewriter.CENTRAL_HEADER_SIZE + entry.name.length + entry.extra.length + entry.comment.length);
+        header.putInt(ZipRewriter.CENTRAL_HEADER)
+                .putShort((short) entry.versionMadeBy)
+                .putShort((short) entry.versionNeeded)
+                .putShort((short) entry.flags)
+                .putShort((short) entry.method)
+                .putShort((short) entry.time)
+                .putShort((short) entry.date)
+                .putInt((int) entry.crc)
+                .putInt((int) entry.compressedSize)
+                .putInt((int) entry.size)
+                .putShort((short) entry.name.length)
+                .putShort((short) entry.extra.length)
+                .putShort((short) entry.comment.length)
+                .putShort((short) 0)
+                .putShort((short) entry.internalAttributes)
+                .putInt((int) entry.externalAttributes)
+                .putInt((int) entry.targetOffset)
+                .put(entry.name)
+                .put(entry.extra)
+                .put(entry.comment);
+        write(out, header.flip());
+    }
+
+    private void readCentralDirectory() throws IOException {
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, ZipRewriter.END_SIZE + 0xFFFF);
+        ByteBuffer tail = buffer(tailLength);
+        readFully(tail, size - tailLength);
+
+        int end = -1;
+        for (int position = tailLength - ZipRewriter.END_SIZE; position >= 0; position--) {
+            if (tail.getInt(position) == ZipRewriter.END_OF_CENTRAL_DIRECTORY) {
+                end = position;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new ZipException("Not a zip archive: " + source);
+        }
+
+        int count = Short.toUnsignedInt(tail.getShort(end + 10));
+        long centralSize = Integer.toUnsignedLong(tail.getInt(end + 12));
+        long centralOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+        if (count == 0xFFFF || centralSize == ZipRewriter.ZIP64_MARKER || centralOffset == ZipRewriter.ZIP64_MARKER) {
+            throw new ZipException("ZIP64 archives are not supported: " + source);
+        }
+
+        ByteBuffer central = buffer(Math.toIntExact(centralSize));
+        readFully(central, centralOffset);
+        central.flip();
+
+        for (int index = 0; index < count; index++) {
+            if (central.remaining() < ZipRewriter.CENTRAL_HEADER_SIZE || central.getInt() != ZipRewriter.CENTRAL_HEADER) {
+                throw new ZipException("Corrupt central directory in " + source);
+            }
+            Entry entry = new Entry();
+            entry.versionMadeBy = Short.toUnsignedInt(central.getShort());
+            entry.versionNeeded = Short.toUnsignedInt(central.getShort());
+            entry.flags = Short.toUnsignedInt(central.getShort());
+            entry.method = Short.toUnsignedInt(central.getShort());
+            entry.time = Short.toUnsignedInt(central.getShort());
+            entry.date = Short.toUnsignedInt(central.getShort());
+            entry.crc = Integer.toUnsignedLong(central.getInt());
+            entry.compressedSize = Integer.toUnsignedLong(central.getInt());
+            entry.size = Integer.toUnsignedLong(central.getInt());
+            int nameLength = Short.toUnsignedInt(central.getShort());
+            int extraLength = Short.toUnsignedInt(central.getShort());
+            int commentLength = Short.toUnsignedInt(central.getShort());
+            central.getShort();
+            entry.internalAttributes = Short.toUnsignedInt(central.getShort());
+            entry.externalAttributes = Integer.toUnsignedLong(central.getInt());
+            entry.offset = Integer.toUnsignedLong(central.getInt());
+            entry.name = new byte[nameLength];
+            entry.extra = new byte[extraLength];
+            entry.comment = new byte[commentLength];
+            central.get(entry.name).get(entry.extra).get(entry.comment);
+
+            if (entry.compressedSize == ZipRewriter.ZIP64_MARKER || entry.size == ZipRewriter.ZIP64_MARKER
+                    || entry.offset == ZipRewriter.ZIP64_MARKER) {
+                throw new ZipException("ZIP64 archives are not supported: " + source);
+            }
+            entries.put(new String(entry.name, StandardCharsets.UTF_8), entry);
+        }
+    }
+
+    private long dataOffset(Entry entry) throws IOException {
+        ByteBuffer header = buffer(ZipRewriter.LOCAL_HEADER_SIZE);
+        readFully(header, entry.offset);
+        if (header.getInt(0) != ZipRewriter.LOCAL_HEADER) {
+            throw new ZipException("Corrupt local header in " + source);
+        }
+        return entry.offset + ZipRewriter.LOCAL_HEADER_SIZE
+                + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+    }
+
+    private Entry find(String name) throws ZipException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new ZipException(String.format("No entry %s in %s", name, source));
+        }
+        return entry;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of " + source);
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+"""Long-lived KCC worker.
+
+Imports KCC once and then converts one archive per request. Requests and
+responses are single JSON lines on stdin and stdout; everything KCC prints
+goes to stderr so it cannot corrupt the protocol.
+
+    request:  {"id": 1, "args": ["chapter.cbz", "-p", "KoLC"]}
+    response: {"id": 1, "exit": 0, "error": ""}
+"""
+
+import json
+import os
+import sys
+import traceback
+
+
+def main():
+    kcc_script = os.path.abspath(sys.argv[1])
+    sys.path.insert(0, os.path.dirname(kcc_script))
+
+    from kindlecomicconverter import comic2ebook
+
+    protocol = sys.stdout
+    sys.stdout = sys.stderr
+
+    def respond(message):
+        protocol.write(json.dumps(message) + "\n")
+        protocol.flush()
+
+    respond({"ready": True})
+
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+
+        job = json.loads(line)
+        error = ""
+        try:
+            code = comic2ebook.main(job["args"])
+            code = 0 if code is None else int(code)
+        except SystemExit as e:
+            code = e.code if isinstance(e.code, int) else 1
+            error = "" if code == 0 else str(e)
+        except Exception:
+            code = 1
+            error = traceback.format_exc()
+
+        respond({"id": job["id"], "exit": code, "error": error})
+
+
+if __name__ == "__main__":
+    from multiprocessing import freeze_support
+
+    freeze_support()
+    main()
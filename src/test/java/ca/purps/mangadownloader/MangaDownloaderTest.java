@@ -121,7 +121,7 @@ public class MangaDownloaderTest {
         MangaScraper scraper = createScraper(config, data);
         Downloader downloader = createDownloader(config, tempPath, data);
 
-        try (MangaDownloader mangaDownloader = new MangaDownloader(scraper, downloader)) {
+        try (MangaDownloader mangaDownloader = new MangaDownloader(scraper, downloader, (seriesUrl, chapterUrl) -> false)) {
             Path result = mangaDownloader.download(data.getUrl());
 
             ArgumentCaptor<Series> seriesCaptor = ArgumentCaptor.forClass(Series.class);
@@ -142,7 +142,7 @@ public class MangaDownloaderTest {
         MangaScraper scraper = createScraper(config, data);
         Downloader downloader = createDownloader(config, tempPath, data);
 
-        try (MangaDownloader mangaDownloader = new MangaDownloader(scraper, downloader)) {
+        try (MangaDownloader mangaDownloader = new MangaDownloader(scraper, downloader, (seriesUrl, chapterUrl) -> false)) {
             Path result = mangaDownloader.download(data.getUrl());
 
             ArgumentCaptor<Chapter> chapterCaptor = ArgumentCaptor.forClass(Chapter.class);
@@ -226,7 +226,11 @@ public class MangaDownloaderTest {
             Chapter chapter = Mockito.mock(Chapter.class);
 
             Mockito.doReturn(series).when(scraper).scrapeSeries(Mockito.anyString());
+            Mockito.doReturn(series).when(scraper).scrapeSeries(Mockito.anyString(), Mockito.any());
             Mockito.doReturn(chapter).when(scraper).scrapeChapter(Mockito.anyString());
+            if (data != null) {
+                Mockito.doCallRealMethod().when(scraper).classify(Mockito.anyString());
+            }
 
             Mockito.doReturn(Collections.singletonList(chapter)).when(series).getChapters();
             Mockito.doReturn(series).when(chapter).getSeries();
@@ -0,0 +1,102 @@
+package ca.purps.mangadownloader.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.exception.TrackerException;
+import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.Series;
+
+public class ConversionPipelineTest {
+
+    @Test
+    void convertsWhileChaptersAreStillArriving() throws InterruptedException {
+        EPubConverter converter = Mockito.mock(EPubConverter.class);
+        CountDownLatch converted = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            converted.countDown();
+            return null;
+        }).when(converter).convertFromCBZ(Mockito.any(Chapter.class));
+
+        try (ConversionPipeline pipeline = new ConversionPipeline(converter, 1, 2)) {
+            pipeline.submit(createChapter(1));
+            assert converted.await(5, TimeUnit.SECONDS) : "First chapter should convert before the rest are submitted";
+
+            pipeline.submit(createChapter(2));
+            pipeline.finish();
+        }
+
+        Mockito.verify(converter, Mockito.times(2)).convertFromCBZ(Mockito.any(Chapter.class));
+    }
+
+    @Test
+    void holdsBackSubmitterWhenQueueIsFull() throws InterruptedException {
+        EPubConverter converter = Mockito.mock(EPubConverter.class);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            started.countDown();
+            gate.await();
+            return null;
+        }).when(converter).convertFromCBZ(Mockito.any(Chapter.class));
+
+        try (ConversionPipeline pipeline = new ConversionPipeline(converter, 1, 1)) {
+            pipeline.submit(createChapter(1));
+            started.await(5, TimeUnit.SECONDS);
+            pipeline.submit(createChapter(2));
+
+            CompletableFuture<Void> third = CompletableFuture.runAsync(() -> pipeline.submit(createChapter(3)));
+            Thread.sleep(200);
+            assert !third.isDone() : "Submit should wait while the queue is full";
+
+            gate.countDown();
+            third.join();
+            pipeline.finish();
+        }
+    }
+
+    @Test
+    void reportsFailuresAfterConvertingTheRest() {
+        EPubConverter converter = Mockito.mock(EPubConverter.class);
+        List<String> converted = Collections.synchronizedList(new ArrayList<>());
+        Mockito.doAnswer(invocation -> {
+            Chapter chapter = invocation.getArgument(0);
+            if (chapter.getSeriesIndex() == 1) {
+                throw new TrackerException("KCC failed");
+            }
+            converted.add(chapter.getName());
+            return null;
+        }).when(converter).convertFromCBZ(Mockito.any(Chapter.class));
+
+        try (ConversionPipeline pipeline = new ConversionPipeline(converter, 1, 4)) {
+            pipeline.submit(createChapter(1));
+            pipeline.submit(createChapter(2));
+            pipeline.finish();
+            assert false : "Finish should rethrow the failed conversion";
+        } catch (TrackerException e) {
+            assert e.getMessage().equals("KCC failed") : "Unexpected failure: " + e.getMessage();
+        }
+
+        assert converted.equals(List.of("Chapter 2")) : "Later chapters should still convert, got " + converted;
+    }
+
+    private Chapter createChapter(int index) {
+        return Chapter.builder()
+                .series(Mockito.mock(Series.class))
+                .url("https://example.com/chapter/" + index)
+                .id(String.valueOf(index))
+                .name("Chapter " + index)
+                .description("")
+                .imageUrls(List.of())
+                .seriesIndex(index)
+                .build();
+    }
+
+}
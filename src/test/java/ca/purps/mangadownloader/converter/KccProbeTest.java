@@ -0,0 +1,84 @@
+package ca.purps.mangadownloader.converter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.testng.SkipException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.exception.TrackerException;
+
+public class KccProbeTest {
+
+    private static final String FAKE_KCC = String.join("\n",
+            "import sys",
+            "with open(sys.argv[0] + '.runs', 'a') as f:",
+            "    f.write('run\\n')",
+            "print('comic2ebook v5.6.2 - Written by Ciro Mattia Gonano and Pawel Jastrzebski.')",
+            "print('usage: kcc-c2e [options] [input]')",
+            "print('  -p PROFILE, --profile PROFILE   Device profile')",
+            "print('  --webtoon, --forcecolor, --cropping CROPPING, --nokepub')",
+            "");
+
+    private Path dir;
+    private Path script;
+    private AppConfig config;
+
+    @BeforeMethod
+    public void createFakeKcc() throws IOException, InterruptedException {
+        try {
+            if (new ProcessBuilder("python", "--version").start().waitFor() != 0) {
+                throw new SkipException("python is not available");
+            }
+        } catch (IOException e) {
+            throw new SkipException("python is not available");
+        }
+
+        dir = Files.createTempDirectory("kcc-probe");
+        script = Files.writeString(dir.resolve("kcc-c2e.py"), KccProbeTest.FAKE_KCC);
+        config = AppConfig.builder().kccProbeCachePath(dir.resolve("kcc-probe.json")).build();
+    }
+
+    @Test
+    void probesOncePerInstallation() throws IOException {
+        KccProbe.Capabilities first = KccProbe.probe(config, script.toString());
+        KccProbe.Capabilities second = KccProbe.probe(config, script.toString());
+
+        assert "5.6.2".equals(first.getVersion()) : "Version should be read from the help text, got " + first.getVersion();
+        assert first.getFlags().containsAll(List.of("-p", "--profile", "--webtoon", "--nokepub")) : "Options should be read from the help text, got " + first.getFlags();
+        assert second == first : "Second probe should be answered from memory";
+        assert runs() == 1 : "KCC should be launched once, was launched " + runs() + " times";
+
+        KccProbe.Cache cache = KccProbe.load(config.getKccProbeCachePath());
+        assert cache.getEntries().size() == 1 : "Probe should be saved for later runs";
+        assert cache.getEntries().values().iterator().next().getFlags().contains("--cropping") : "Saved probe should keep the options";
+
+        Files.setLastModifiedTime(script, FileTime.fromMillis(Files.getLastModifiedTime(script).toMillis() - 60_000));
+        KccProbe.probe(config, script.toString());
+        assert runs() == 2 : "A changed script should be probed again";
+        assert KccProbe.load(config.getKccProbeCachePath()).getEntries().size() == 2 : "Both installations should be remembered";
+    }
+
+    @Test
+    void rejectsUnsupportedArguments() throws IOException {
+        KccProbe.Capabilities kcc = KccProbe.probe(config, script.toString());
+
+        kcc.checkArguments("-p KoLC --webtoon --forcecolor --cropping 0 --nokepub");
+        try {
+            kcc.checkArguments("-p KoLC --stretch --upscale=1");
+            assert false : "Unknown options should be rejected";
+        } catch (TrackerException e) {
+            assert e.getMessage().contains("[--stretch, --upscale]") : "Unexpected message: " + e.getMessage();
+        }
+    }
+
+    private long runs() throws IOException {
+        return Files.readAllLines(dir.resolve("kcc-c2e.py.runs")).size();
+    }
+
+}
@@ -0,0 +1,122 @@
+package ca.purps.mangadownloader.converter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+
+/**
+ * Runs the real worker script against a stand-in {@code kindlecomicconverter}
+ * package whose behaviour is picked by the first argument.
+ */
+public class KccWorkerPoolTest {
+
+    private static final String FAKE_KCC = String.join("\n",
+            "import os, sys, time",
+            "def main(args):",
+            "    mode = args[0]",
+            "    if mode == 'pid':",
+            "        time.sleep(float(args[2]))",
+            "        with open(args[1], 'a') as f:",
+            "            f.write(str(os.getpid()) + '\\n')",
+            "        print('progress output that must not reach the protocol')",
+            "        return 0",
+            "    if mode == 'fail':",
+            "        return 2",
+            "    if mode == 'sleep':",
+            "        time.sleep(30)",
+            "        return 0",
+            "    if mode == 'crash-once':",
+            "        if not os.path.exists(args[1]):",
+            "            open(args[1], 'w').close()",
+            "            os._exit(3)",
+            "        return 0",
+            "");
+
+    private Path dir;
+    private String kccScript;
+
+    @BeforeClass
+    public void createFakeKcc() throws IOException, InterruptedException {
+        try {
+            if (new ProcessBuilder("python", "--version").start().waitFor() != 0) {
+                throw new SkipException("python is not available");
+            }
+        } catch (IOException e) {
+            throw new SkipException("python is not available");
+        }
+
+        dir = Files.createTempDirectory("fake-kcc");
+        Path kcc = Files.createDirectories(dir.resolve("kindlecomicconverter"));
+        Files.writeString(kcc.resolve("__init__.py"), "");
+        Files.writeString(kcc.resolve("comic2ebook.py"), KccWorkerPoolTest.FAKE_KCC);
+        kccScript = Files.writeString(dir.resolve("kcc-c2e.py"), "").toString();
+    }
+
+    @Test
+    void reusesWorkersAndSpreadsJobs() throws IOException {
+        Path pids = dir.resolve("pids-spread");
+
+        try (KccWorkerPool pool = new KccWorkerPool(config(2, 10), kccScript)) {
+            CompletableFuture<KccWorkerPool.Result> first = CompletableFuture.supplyAsync(() -> convert(pool, "pid", pids.toString(), "0.5"));
+            CompletableFuture<KccWorkerPool.Result> second = CompletableFuture.supplyAsync(() -> convert(pool, "pid", pids.toString(), "0.5"));
+            assert first.join().exitCode() == 0 && second.join().exitCode() == 0 : "Both jobs should succeed";
+
+            assert pool.convert(List.of("pid", pids.toString(), "0")).exitCode() == 0 : "Third job should succeed";
+        }
+
+        List<String> lines = Files.readAllLines(pids);
+        assert lines.size() == 3 : "Every job should run once, got " + lines;
+        assert !lines.get(0).equals(lines.get(1)) : "Concurrent jobs should run on different workers, got " + lines;
+        assert lines.subList(0, 2).contains(lines.get(2)) : "Later jobs should reuse a running worker, got " + lines;
+    }
+
+    @Test
+    void reportsKccFailure() throws IOException {
+        try (KccWorkerPool pool = new KccWorkerPool(config(1, 10), kccScript)) {
+            assert pool.convert(List.of("fail")).exitCode() == 2 : "Exit code should come from KCC";
+        }
+    }
+
+    @Test
+    void restartsCrashedWorker() throws IOException {
+        try (KccWorkerPool pool = new KccWorkerPool(config(1, 10), kccScript)) {
+            KccWorkerPool.Result result = pool.convert(List.of("crash-once", dir.resolve("crashed").toString()));
+            assert result.exitCode() == 0 : "Job should be retried on a fresh worker";
+        }
+    }
+
+    @Test
+    void killsJobsThatTimeOut() throws IOException {
+        try (KccWorkerPool pool = new KccWorkerPool(config(1, 1), kccScript)) {
+            try {
+                pool.convert(List.of("sleep"));
+                assert false : "Job should time out";
+            } catch (IOException e) {
+                assert e.getMessage().contains("did not answer") : "Unexpected failure: " + e.getMessage();
+            }
+
+            assert pool.convert(List.of("fail")).exitCode() == 2 : "Pool should keep working after a timeout";
+        }
+    }
+
+    private static AppConfig config(int workers, long timeoutSeconds) {
+        return AppConfig.builder().kccWorkers(workers).conversionTimeoutSeconds(timeoutSeconds).build();
+    }
+
+    private static KccWorkerPool.Result convert(KccWorkerPool pool, String... args) {
+        try {
+            return pool.convert(List.of(args));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
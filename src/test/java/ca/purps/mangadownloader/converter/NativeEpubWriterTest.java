@@ -0,0 +1,154 @@
+package ca.purps.mangadownloader.converter;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.config.EpubBackend;
+import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.Series;
+import ca.purps.mangadownloader.model.Status;
+
+public class NativeEpubWriterTest {
+
+    @Test
+    void convertsArchiveIntoEpub() throws IOException {
+        Path dir = Files.createTempDirectory("native-epub");
+        Path cbz = dir.resolve("1_Chapter_1.cbz");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(cbz))) {
+            addEntry(zos, "002.jpg", image("jpg", 300, 400));
+            addEntry(zos, "001.png", image("png", 200, 300));
+        }
+
+        Chapter chapter = createChapter(image("png", 120, 160));
+        chapter.setArchivePath(cbz);
+
+        new EPubConverter(AppConfig.builder().epubBackend(EpubBackend.NATIVE).build()).convertFromCBZ(chapter);
+
+        Path epub = dir.resolve("1_Chapter_1.epub");
+        assert chapter.getArchivePath().equals(epub) : "Chapter should point at the EPUB, got " + chapter.getArchivePath();
+        assert !Files.exists(cbz) : "CBZ should be removed after conversion";
+
+        try (ZipFile zip = new ZipFile(epub.toFile())) {
+            List<? extends ZipEntry> entries = Collections.list(zip.entries());
+            assert entries.get(0).getName().equals("mimetype") : "mimetype should come first";
+            assert entries.get(0).getMethod() == ZipEntry.STORED : "mimetype should be stored";
+            assert zip.getEntry("OEBPS/Images/001.png").getMethod() == ZipEntry.STORED : "Pages should be stored";
+            assert zip.getEntry("OEBPS/Images/cover.png") != null : "Cover should be included";
+
+            String opf = read(zip, "OEBPS/content.opf");
+            assert opf.contains("<meta name=\"calibre:series\" content=\"Series &amp; Co\"/>") : "Series metadata missing:\n" + opf;
+            assert opf.contains("<meta name=\"calibre:series_index\" content=\"7\"/>") : "Series index missing:\n" + opf;
+            assert opf.indexOf("idref=\"page-001\"") < opf.indexOf("idref=\"page-002\"") : "Spine should follow page names:\n" + opf;
+
+            String first = read(zip, "OEBPS/Text/page-001.xhtml");
+            assert first.contains("width=200, height=300") : "First page should be the PNG, sized from its header:\n" + first;
+            assert first.contains("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.1//EN\"") : "EPUB 2 pages should be XHTML 1.1:\n" + first;
+        }
+    }
+
+    @Test
+    void convertsWithoutCoverOrReadableSizes() throws IOException {
+        Path dir = Files.createTempDirectory("native-epub");
+        Path cbz = dir.resolve("1_Chapter_1.cbz");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(cbz))) {
+            addEntry(zos, "001.avif", new byte[] { 0, 0, 0, 28, 'f', 't', 'y', 'p', 'a', 'v', 'i', 'f' });
+            addEntry(zos, "002.png", image("png", 200, 300));
+        }
+
+        Chapter chapter = createChapter(null);
+        chapter.setArchivePath(cbz);
+
+        new EPubConverter(AppConfig.builder().epubBackend(EpubBackend.NATIVE).build()).convertFromCBZ(chapter);
+
+        try (ZipFile zip = new ZipFile(dir.resolve("1_Chapter_1.epub").toFile())) {
+            assert zip.stream().noneMatch(entry -> entry.getName().contains("cover")) : "No cover should be written without cover bytes";
+
+            String opf = read(zip, "OEBPS/content.opf");
+            assert !opf.contains("name=\"cover\"") : "Cover metadata should be left out:\n" + opf;
+            assert opf.contains("<meta name=\"original-resolution\" content=\"200x300\"/>") : "Resolution should come from the first sized page:\n" + opf;
+
+            String first = read(zip, "OEBPS/Text/page-001.xhtml");
+            assert !first.contains("viewport") : "Page of unknown size should have no viewport:\n" + first;
+        }
+    }
+
+    @Test
+    void reencodesCoverWithoutEpubMediaType() throws IOException {
+        Path dir = Files.createTempDirectory("native-epub");
+        Path cbz = dir.resolve("1_Chapter_1.cbz");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(cbz))) {
+            addEntry(zos, "001.png", image("png", 200, 300));
+        }
+
+        Chapter chapter = createChapter(image("bmp", 120, 160));
+        chapter.setArchivePath(cbz);
+
+        new EPubConverter(AppConfig.builder().epubBackend(EpubBackend.NATIVE).build()).convertFromCBZ(chapter);
+
+        try (ZipFile zip = new ZipFile(dir.resolve("1_Chapter_1.epub").toFile())) {
+            assert zip.getEntry("OEBPS/Images/cover.png") != null : "BMP cover should be re-encoded as PNG";
+
+            String opf = read(zip, "OEBPS/content.opf");
+            assert opf.contains("href=\"Images/cover.png\" media-type=\"image/png\"") : "Cover should be listed as PNG:\n" + opf;
+            assert !opf.contains("media-type=\"null\"") : "Every manifest item should have a media type:\n" + opf;
+        }
+    }
+
+    private Chapter createChapter(byte[] cover) {
+        List<Chapter> chapters = new ArrayList<>();
+        Series series = Series.builder()
+                .url("https://example.com/series")
+                .id(1)
+                .title("Series & Co")
+                .description("")
+                .authors(List.of("Author"))
+                .genres(List.of())
+                .coverBytes(cover)
+                .status(Status.ONGOING)
+                .chapters(chapters)
+                .build();
+        Chapter chapter = Chapter.builder()
+                .series(series)
+                .url("https://example.com/series/chapter-1")
+                .id("1")
+                .name("Chapter 1")
+                .description("First <chapter>")
+                .imageUrls(List.of())
+                .seriesIndex(7)
+                .build();
+        chapters.add(chapter);
+        return chapter;
+    }
+
+    private static byte[] image(String format, int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, out);
+        return out.toByteArray();
+    }
+
+    private static void addEntry(ZipOutputStream zos, String name, byte[] bytes) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+
+    private static String read(ZipFile zip, String name) throws IOException {
+        return new String(zip.getInputStream(zip.getEntry(name)).readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,100 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.exception.DownloadException;
+
+public class ArchiveWriterTest {
+
+    @Test
+    void keepsPageOrderForOutOfOrderWrites() throws IOException {
+        Path dir = Files.createTempDirectory("archive-writer");
+        Path archive = dir.resolve("chapter.cbz");
+
+        List<Integer> order = new ArrayList<>(List.of(1, 2, 3, 4, 5, 6, 7, 8));
+        Collections.shuffle(order);
+
+        try (ArchiveWriter writer = new ArchiveWriter(archive, order.size(), 16)) {
+            CompletableFuture.allOf(order.stream()
+                    .map(index -> CompletableFuture.runAsync(() -> write(writer, index)))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+            writer.finish();
+        }
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                String body = new String(zis.readAllBytes(), StandardCharsets.UTF_8);
+                assert body.equals("page " + entry.getName()) : "Entry " + entry.getName() + " has the wrong body.";
+                entries.add(entry.getName());
+            }
+        }
+
+        assert entries.equals(List.of("001.jpg", "002.jpg", "003.jpg", "004.jpg", "005.jpg", "006.jpg", "007.jpg", "008.jpg"))
+                : "Pages should be archived in order, got " + entries;
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assert files.count() == 1 : "Spill files should be removed once written.";
+        }
+    }
+
+    @Test
+    void storesImagesAndDeflatesText() throws IOException {
+        Path archive = Files.createTempDirectory("archive-writer").resolve("chapter.cbz");
+        byte[] large = new byte[64];
+        Arrays.fill(large, (byte) 'x');
+
+        try (ArchiveWriter writer = new ArchiveWriter(archive, 3, 32)) {
+            writer.write(3, "comic.txt", new ByteArrayInputStream(large));
+            writer.write(2, "002.png", new ByteArrayInputStream(large));
+            writer.write(1, "001.jpg", new ByteArrayInputStream("small".getBytes(StandardCharsets.UTF_8)));
+            writer.finish();
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assert zip.getEntry("001.jpg").getMethod() == ZipEntry.STORED : "Buffered image should be stored";
+            assert zip.getEntry("002.png").getMethod() == ZipEntry.STORED : "Spilled image should be stored";
+            assert zip.getEntry("comic.txt").getMethod() == ZipEntry.DEFLATED : "Text should be deflated";
+            assert Arrays.equals(zip.getInputStream(zip.getEntry("002.png")).readAllBytes(), large) : "Spilled image body changed";
+        }
+    }
+
+    @Test(expectedExceptions = DownloadException.class)
+    void rejectsMissingPages() throws IOException {
+        Path archive = Files.createTempDirectory("archive-writer").resolve("chapter.cbz");
+
+        try (ArchiveWriter writer = new ArchiveWriter(archive, 2, 1024)) {
+            write(writer, 2);
+            writer.finish();
+        } finally {
+            assert !Files.exists(archive) : "Incomplete archive should be deleted.";
+        }
+    }
+
+    private void write(ArchiveWriter writer, int index) {
+        String name = String.format("%03d.jpg", index);
+        try {
+            writer.write(index, name, new ByteArrayInputStream(("page " + name).getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
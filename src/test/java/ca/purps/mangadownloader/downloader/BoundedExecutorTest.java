@@ -0,0 +1,119 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class BoundedExecutorTest {
+
+    @Test
+    void capsConcurrentTasks() {
+        BoundedExecutor executor = new BoundedExecutor(Executors.newCachedThreadPool(), 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[20];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assert peak.get() == 3 : "At most 3 tasks should run at once, saw " + peak.get();
+    }
+
+    @Test
+    void runsTasksInterruptedAtTheGate() throws InterruptedException {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        BoundedExecutor executor = new BoundedExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            threads.add(thread);
+            return thread;
+        }), 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            CountDownLatch holding = new CountDownLatch(1);
+            CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+                holding.countDown();
+                await(release);
+            }, executor);
+            holding.await();
+            CompletableFuture<Void> parked = CompletableFuture.runAsync(() -> {
+            }, executor);
+            waitUntilParked(threads, 2);
+
+            threads.get(1).interrupt();
+            parked.orTimeout(5, TimeUnit.SECONDS).join();
+
+            release.countDown();
+            holder.join();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void returnsParkedTasksFromShutdownNow() throws InterruptedException {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        BoundedExecutor executor = new BoundedExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            threads.add(thread);
+            return thread;
+        }), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        Runnable parked = () -> ran.set(true);
+
+        CountDownLatch holding = new CountDownLatch(1);
+        executor.execute(() -> {
+            holding.countDown();
+            await(release);
+        });
+        holding.await();
+        executor.execute(parked);
+        waitUntilParked(threads, 2);
+
+        List<Runnable> pending = executor.shutdownNow();
+        release.countDown();
+        assert executor.awaitTermination(5, TimeUnit.SECONDS) : "Executor should terminate";
+
+        assert pending.equals(List.of(parked)) : "Parked task should be handed back, got " + pending;
+        assert !ran.get() : "A task handed back should not also run";
+    }
+
+    private static void waitUntilParked(List<Thread> threads, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (threads.size() < count || threads.get(count - 1).getState() != Thread.State.WAITING) {
+            assert System.nanoTime() < deadline : "Task never reached the gate";
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
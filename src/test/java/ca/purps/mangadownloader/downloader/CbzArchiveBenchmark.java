@@ -0,0 +1,145 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ca.purps.mangadownloader.utility.ZipEntries;
+
+/**
+ * Compares the old all-DEFLATE CBZ with stored image entries. Besides the
+ * wall time, each trial prints the archive size and the CPU time the
+ * archiving thread spent per archive.
+ * Point {@code -Dchapter.dir=...} at a downloaded chapter directory to use
+ * real pages; otherwise a chapter of generated JPEG and PNG pages is used.
+ * Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ca.purps.mangadownloader.downloader.CbzArchiveBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CbzArchiveBenchmark {
+
+    @Param({ "DEFLATED", "STORED" })
+    private String method;
+
+    @Param({ "24" })
+    private int pages;
+
+    private Path source;
+    private Path archive;
+    private List<Path> files;
+
+    private long cpuNanos;
+    private long operations;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        String fixtures = System.getProperty("chapter.dir");
+        source = fixtures != null ? Path.of(fixtures) : generateChapter(pages);
+        archive = Files.createTempFile("cbz-benchmark", ".cbz");
+        try (Stream<Path> list = Files.list(source)) {
+            files = list.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.printf("%n%s: %d KiB archive, %.2f ms CPU per archive%n",
+                method, Files.size(archive) / 1024, cpuNanos / (double) operations / 1_000_000);
+        Files.deleteIfExists(archive);
+    }
+
+    @Benchmark
+    public void archive() throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if ("STORED".equals(method)) {
+                    ZipEntries.addFile(zos, name, file);
+                } else {
+                    zos.putNextEntry(new ZipEntry(name));
+                    Files.copy(file, zos);
+                    zos.closeEntry();
+                }
+            }
+        }
+        cpuNanos += threads.getCurrentThreadCpuTime() - cpuStart;
+        operations++;
+    }
+
+    private static Path generateChapter(int pages) throws IOException {
+        Path dir = Files.createTempDirectory("cbz-benchmark-pages");
+        Random random = new Random(42);
+
+        for (int i = 1; i <= pages; i++) {
+            BufferedImage image = new BufferedImage(800, 1200, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, 800, 1200);
+            for (int panel = 0; panel < 40; panel++) {
+                graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+                graphics.fillOval(random.nextInt(800), random.nextInt(1200), 40 + random.nextInt(200), 40 + random.nextInt(200));
+            }
+            for (int pixel = 0; pixel < 60_000; pixel++) {
+                image.setRGB(random.nextInt(800), random.nextInt(1200), random.nextInt(0xFFFFFF));
+            }
+            graphics.dispose();
+
+            String format = i % 4 == 0 ? "png" : "jpg";
+            try (OutputStream out = Files.newOutputStream(dir.resolve(String.format("%03d.%s", i, format)))) {
+                ImageIO.write(image, format, out);
+            }
+        }
+        return dir;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CbzArchiveBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,53 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class CompletionSequencerTest {
+
+    @Test
+    void releasesInTicketOrder() {
+        List<String> released = new ArrayList<>();
+        CompletionSequencer<String> sequencer = new CompletionSequencer<>(true, released::add);
+        int first = sequencer.ticket();
+        int second = sequencer.ticket();
+        int third = sequencer.ticket();
+
+        sequencer.complete(third, "third");
+        sequencer.complete(second, "second");
+        assert released.isEmpty() : "Nothing should be released before the first ticket, got " + released;
+        assert sequencer.getHeld() == 2 : "Both later results should be held";
+
+        sequencer.complete(first, "first");
+        assert released.equals(List.of("first", "second", "third")) : "Results should come out in ticket order, got " + released;
+        assert sequencer.getHeld() == 0 : "Nothing should be left held";
+    }
+
+    @Test
+    void skipsTicketsWithoutValue() {
+        List<String> released = new ArrayList<>();
+        CompletionSequencer<String> sequencer = new CompletionSequencer<>(true, released::add);
+        int failed = sequencer.ticket();
+        int next = sequencer.ticket();
+
+        sequencer.complete(next, "next");
+        sequencer.complete(failed, null);
+
+        assert released.equals(List.of("next")) : "A failed ticket should unblock the ones behind it, got " + released;
+    }
+
+    @Test
+    void releasesImmediatelyWhenUnordered() {
+        List<String> released = new ArrayList<>();
+        CompletionSequencer<String> sequencer = new CompletionSequencer<>(false, released::add);
+        sequencer.ticket();
+        int second = sequencer.ticket();
+
+        sequencer.complete(second, "second");
+
+        assert released.equals(List.of("second")) : "Unordered results should not wait, got " + released;
+    }
+
+}
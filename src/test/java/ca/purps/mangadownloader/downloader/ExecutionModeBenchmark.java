@@ -0,0 +1,120 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ca.purps.mangadownloader.config.ExecutionMode;
+
+/**
+ * Compares the fixed platform pool with the virtual thread mode on a batch of
+ * blocking tasks shaped like image downloads. Throughput is the batch time;
+ * footprint is reported as the peak live thread count and committed non-heap
+ * memory (thread stacks land there). Add {@code -prof gc} for allocation
+ * rates. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ca.purps.mangadownloader.downloader.ExecutionModeBenchmark
+ * </pre>
+ *
+ * On a Java 17 runtime both modes use the fixed pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    @Param({ "PLATFORM", "VIRTUAL" })
+    private ExecutionMode mode;
+
+    @Param({ "352" })
+    private int concurrency;
+
+    @Param({ "2000" })
+    private int tasks;
+
+    @Param({ "5" })
+    private long latencyMs;
+
+    private ExecutorService executor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long peakThreads;
+        public long nonHeapCommittedKb;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        }
+
+        @TearDown(Level.Iteration)
+        public void record() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            peakThreads = threads.getPeakThreadCount();
+            nonHeapCommittedKb = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getCommitted() / 1024;
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = DownloadExecutors.create(mode, concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void batch(Footprint footprint) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks];
+        for (int i = 0; i < tasks; i++) {
+            futures[i] = CompletableFuture.runAsync(this::blockingCall, executor);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void blockingCall() {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExecutionModeBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
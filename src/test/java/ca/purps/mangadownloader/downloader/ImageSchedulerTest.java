@@ -0,0 +1,120 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+
+public class ImageSchedulerTest {
+
+    @Test
+    void finishesStartedChaptersFirst() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ImageScheduler scheduler = new ImageScheduler(executor, 2);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch gate = new CountDownLatch(1);
+
+        try {
+            ImageScheduler.Lane first = scheduler.openLane("first");
+            ImageScheduler.Lane second = scheduler.openLane("second");
+
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            futures.add(first.submit(() -> await(gate, order, "first-1")));
+            futures.add(first.submit(() -> await(gate, order, "first-2")));
+            for (int i = 0; i < 3; i++) {
+                String page = "second-" + (i + 1);
+                futures.add(second.submit(() -> record(order, page)));
+            }
+            for (int i = 2; i < 5; i++) {
+                String page = "first-" + (i + 1);
+                futures.add(first.submit(() -> record(order, page)));
+            }
+            first.close();
+            second.close();
+
+            gate.countDown();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int lastFirst = Math.max(order.indexOf("first-5"), order.indexOf("first-4"));
+        int firstSecond = order.indexOf("second-1");
+        assert lastFirst < firstSecond : "Started chapter should finish before the next one starts, got " + order;
+    }
+
+    @Test
+    void failsOnlyTheFailedPage() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        ImageScheduler scheduler = new ImageScheduler(executor, 1);
+
+        try {
+            ImageScheduler.Lane lane = scheduler.openLane("chapter");
+            CompletableFuture<String> failed = lane.submit(() -> {
+                throw new IllegalStateException("boom");
+            });
+            CompletableFuture<String> ok = lane.submit(() -> "ok");
+            lane.close();
+
+            assert ok.join().equals("ok") : "Later pages should still run.";
+            try {
+                failed.join();
+                assert false : "Failed page should complete exceptionally.";
+            } catch (CompletionException e) {
+                assert e.getCause() instanceof IllegalStateException : "Failure should carry the task exception.";
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void admitsWaitingChaptersByPriority() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        ImageScheduler scheduler = new ImageScheduler(executor, 1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch gate = new CountDownLatch(1);
+
+        try {
+            ImageScheduler.Lane running = scheduler.openLane("running", 0);
+            ImageScheduler.Lane late = scheduler.openLane("late", 3);
+            ImageScheduler.Lane early = scheduler.openLane("early", 1);
+            ImageScheduler.Lane tied = scheduler.openLane("tied", 1);
+
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            futures.add(running.submit(() -> await(gate, order, "running")));
+            futures.add(late.submit(() -> record(order, "late")));
+            futures.add(early.submit(() -> record(order, "early")));
+            futures.add(tied.submit(() -> record(order, "tied")));
+            List.of(running, late, early, tied).forEach(ImageScheduler.Lane::close);
+
+            gate.countDown();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assert order.equals(List.of("running", "early", "tied", "late")) : "Waiting lanes should start by priority, then by age, got " + order;
+    }
+
+    private String await(CountDownLatch gate, List<String> order, String page) {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return record(order, page);
+    }
+
+    private String record(List<String> order, String page) {
+        order.add(page);
+        return page;
+    }
+
+}
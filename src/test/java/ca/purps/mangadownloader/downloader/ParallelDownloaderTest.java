@@ -0,0 +1,72 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.ChapterStream;
+import ca.purps.mangadownloader.model.Series;
+import ca.purps.mangadownloader.model.Status;
+import ca.purps.mangadownloader.tracker.DownloadTracker;
+
+public class ParallelDownloaderTest {
+
+    private static final List<String> CHAPTER_URLS = List.of("https://example.com/series/1", "https://example.com/series/2");
+
+    @Test
+    void skipsStreamedSeriesThatIsAlreadyDownloaded() throws IOException {
+        Path dir = Files.createTempDirectory("parallel-downloader");
+        AppConfig config = AppConfig.builder()
+                .downloadPath(dir)
+                .historyFilePath(dir.resolve("history.json"))
+                .convertToEpub(false)
+                .build();
+        DownloadTracker tracker = new DownloadTracker(config);
+
+        AtomicBoolean scraped = new AtomicBoolean();
+        Series series = createSeries(new ChapterStream(2, ParallelDownloaderTest.CHAPTER_URLS, sink -> scraped.set(true)));
+        tracker.markChapterDownloaded(createChapter(series, ParallelDownloaderTest.CHAPTER_URLS.get(0)));
+        assert !tracker.isSeriesDownloaded(series) : "A series with an untracked chapter is not downloaded";
+
+        tracker.markChapterDownloaded(createChapter(series, ParallelDownloaderTest.CHAPTER_URLS.get(1)));
+        try (ParallelDownloader downloader = new ParallelDownloader(config, tracker)) {
+            Path path = downloader.download(series);
+
+            assert path.equals(dir.resolve("Series")) : "Downloaded series should return its path, got " + path;
+            assert !scraped.get() : "Chapters of a downloaded series should not be scraped";
+        }
+    }
+
+    private static Series createSeries(ChapterStream stream) {
+        return Series.builder()
+                .url("https://example.com/series")
+                .id(1)
+                .title("Series")
+                .description("")
+                .authors(List.of())
+                .genres(List.of())
+                .status(Status.ONGOING)
+                .chapters(new ArrayList<>())
+                .chapterStream(stream)
+                .build();
+    }
+
+    private static Chapter createChapter(Series series, String url) {
+        return Chapter.builder()
+                .series(series)
+                .url(url)
+                .id(url.substring(url.lastIndexOf('/') + 1))
+                .name("Chapter")
+                .description("")
+                .imageUrls(List.of())
+                .build();
+    }
+
+}
@@ -0,0 +1,108 @@
+package ca.purps.mangadownloader.downloader;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class PartialImageTest {
+
+    private static final byte[] IMAGE = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.UTF_8);
+    private static final String ETAG = "\"v1\"";
+
+    private final OkHttpClient client = new OkHttpClient();
+    private final List<String> ranges = new ArrayList<>();
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/image.jpg", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            ranges.add(range);
+            exchange.getResponseHeaders().add("ETag", PartialImageTest.ETAG);
+
+            if (range != null && PartialImageTest.ETAG.equals(ifRange)) {
+                int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                byte[] rest = Arrays.copyOfRange(PartialImageTest.IMAGE, start, PartialImageTest.IMAGE.length);
+                exchange.getResponseHeaders().add("Content-Range",
+                        String.format("bytes %d-%d/%d", start, PartialImageTest.IMAGE.length - 1, PartialImageTest.IMAGE.length));
+                exchange.sendResponseHeaders(206, rest.length);
+                exchange.getResponseBody().write(rest);
+            } else {
+                exchange.sendResponseHeaders(200, PartialImageTest.IMAGE.length);
+                exchange.getResponseBody().write(PartialImageTest.IMAGE);
+            }
+            exchange.close();
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/image.jpg";
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void resumesPartialBody() throws IOException {
+        Path dir = Files.createTempDirectory("partial-image");
+        Path target = dir.resolve("001.jpg");
+        Files.write(dir.resolve("001.jpg" + PartialImage.PART_SUFFIX), Arrays.copyOf(PartialImageTest.IMAGE, 10));
+        Files.writeString(dir.resolve("001.jpg" + PartialImage.VALIDATOR_SUFFIX), PartialImageTest.ETAG);
+
+        ranges.clear();
+        Path result = download(new PartialImage(target));
+
+        assert ranges.equals(List.of("bytes=10-")) : "Only the missing bytes should be requested, got " + ranges;
+        assert Arrays.equals(Files.readAllBytes(result), PartialImageTest.IMAGE) : "Resumed image should match the original.";
+        try (var files = Files.list(dir)) {
+            assert files.count() == 1 : "Work files should be removed once the image is complete.";
+        }
+    }
+
+    @Test
+    void restartsWhenValidatorChanged() throws IOException {
+        Path dir = Files.createTempDirectory("partial-image");
+        Path target = dir.resolve("001.jpg");
+        Files.write(dir.resolve("001.jpg" + PartialImage.PART_SUFFIX), "stale".getBytes(StandardCharsets.UTF_8));
+        Files.writeString(dir.resolve("001.jpg" + PartialImage.VALIDATOR_SUFFIX), "\"v0\"");
+
+        Path result = download(new PartialImage(target));
+
+        assert Arrays.equals(Files.readAllBytes(result), PartialImageTest.IMAGE) : "A changed image should be downloaded whole.";
+    }
+
+    @Test
+    void reportsCompleteImage() throws IOException {
+        Path target = Files.createTempDirectory("partial-image").resolve("001.jpg");
+        Files.write(target, PartialImageTest.IMAGE);
+
+        assert new PartialImage(target).isComplete() : "An existing image should be reused.";
+    }
+
+    private Path download(PartialImage image) throws IOException {
+        Request request = image.prepare(new Request.Builder().url(url)).build();
+        try (Response response = client.newCall(request).execute()) {
+            return image.handle(response);
+        }
+    }
+
+}
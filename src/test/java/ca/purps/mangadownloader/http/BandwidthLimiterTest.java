@@ -0,0 +1,69 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class BandwidthLimiterTest {
+
+    private static final int BODY_BYTES = 100 * 1024;
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/image.jpg", exchange -> {
+            exchange.sendResponseHeaders(200, BandwidthLimiterTest.BODY_BYTES);
+            exchange.getResponseBody().write(new byte[BandwidthLimiterTest.BODY_BYTES]);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/image.jpg";
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void sharesGlobalCapBetweenTransfers() {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(new BandwidthLimiter(AppConfig.builder().bandwidthBytesPerSecond(200 * 1024).build()))
+                .build();
+
+        long start = System.nanoTime();
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(() -> download(client, start));
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync(() -> download(client, start));
+        long firstMs = first.join();
+        long secondMs = second.join();
+
+        assert Math.max(firstMs, secondMs) >= 800 : "200 KiB at 200 KiB/s should take about a second, took " + Math.max(firstMs, secondMs) + " ms";
+        assert Math.abs(firstMs - secondMs) < 400 : "Transfers should share the cap, finished at " + firstMs + " and " + secondMs + " ms";
+    }
+
+    private long download(OkHttpClient client, long start) {
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            response.body().bytes();
+            return (System.nanoTime() - start) / 1_000_000;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
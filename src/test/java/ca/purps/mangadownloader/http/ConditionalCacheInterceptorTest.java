@@ -0,0 +1,101 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class ConditionalCacheInterceptorTest {
+
+    private static final byte[] PAGE = "<html>page</html>".getBytes(StandardCharsets.UTF_8);
+
+    private final AtomicInteger validatedHits = new AtomicInteger();
+    private final AtomicInteger plainHits = new AtomicInteger();
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/validated", exchange -> {
+            validatedHits.incrementAndGet();
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.sendResponseHeaders(200, ConditionalCacheInterceptorTest.PAGE.length);
+                exchange.getResponseBody().write(ConditionalCacheInterceptorTest.PAGE);
+            }
+            exchange.close();
+        });
+        server.createContext("/plain", exchange -> {
+            plainHits.incrementAndGet();
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+            exchange.sendResponseHeaders(200, ConditionalCacheInterceptorTest.PAGE.length);
+            exchange.getResponseBody().write(ConditionalCacheInterceptorTest.PAGE);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void revalidatesPagesWithValidators() throws IOException {
+        OkHttpClient client = newClient();
+
+        String first = fetch(client, "/validated", null);
+        String second = fetch(client, "/validated", 304);
+
+        assert validatedHits.get() == 2 : "A page with a validator should be revalidated despite max-age, server saw " + validatedHits.get() + " requests";
+        assert first.equals(second) : "A 304 should be answered from the cached body";
+    }
+
+    @Test
+    void leavesPagesWithoutValidatorsAlone() throws IOException {
+        OkHttpClient client = newClient();
+
+        fetch(client, "/plain", null);
+        fetch(client, "/plain", null);
+
+        assert plainHits.get() == 1 : "A page without a validator should keep its own freshness, server saw " + plainHits.get() + " requests";
+    }
+
+    private OkHttpClient newClient() throws IOException {
+        return new OkHttpClient.Builder()
+                .cache(new Cache(Files.createTempDirectory("http-cache").toFile(), 1024 * 1024))
+                .addNetworkInterceptor(new ConditionalCacheInterceptor())
+                .build();
+    }
+
+    private String fetch(OkHttpClient client, String path, Integer expectedNetworkCode) throws IOException {
+        try (Response response = client.newCall(new Request.Builder().url(baseUrl + path).build()).execute()) {
+            assert response.isSuccessful() : "Request should succeed, got " + response.code();
+            if (expectedNetworkCode != null) {
+                assert response.networkResponse() != null && response.networkResponse().code() == expectedNetworkCode
+                        : "Network response should be " + expectedNetworkCode + ", got " + response.networkResponse();
+                assert response.cacheResponse() != null : "Response should be served from the cache";
+            }
+            return response.body().string();
+        }
+    }
+
+}
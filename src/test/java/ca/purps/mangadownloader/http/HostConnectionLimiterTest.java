@@ -0,0 +1,98 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class HostConnectionLimiterTest {
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/page", exchange -> {
+            byte[] body = "page".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/page";
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void holdsPermitUntilBodyIsClosed() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new HostConnectionLimiter(1))
+                .build();
+
+        Response first = client.newCall(new Request.Builder().url(url).build()).execute();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> fetch(client));
+
+        try {
+            second.get(300, TimeUnit.MILLISECONDS);
+            assert false : "Second request should wait while the first body is open";
+        } catch (TimeoutException expected) {
+            // still waiting for the permit
+        }
+
+        first.close();
+        assert "page".equals(second.get(5, TimeUnit.SECONDS)) : "Second request should proceed once the first body is closed";
+    }
+
+    @Test
+    void releasesPermitWhenRequestFails() throws Exception {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new HostConnectionLimiter(1))
+                .addInterceptor(chain -> {
+                    if (failNext.getAndSet(false)) {
+                        throw new IOException("Connection reset");
+                    }
+                    return chain.proceed(chain.request());
+                })
+                .build();
+
+        try {
+            fetch(client);
+            assert false : "First request should fail";
+        } catch (UncheckedIOException expected) {
+            // permit must have been handed back
+        }
+
+        assert "page".equals(CompletableFuture.supplyAsync(() -> fetch(client)).get(5, TimeUnit.SECONDS))
+                : "A failed request should not keep its permit";
+    }
+
+    private String fetch(OkHttpClient client) {
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            return response.body().string();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package ca.purps.mangadownloader.http;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+
+public class RetryPolicyTest {
+
+    @Test
+    void classifiesFailures() {
+        assert RetryPolicy.classify(new HttpStatusException("", 503, -1)) == RetryPolicy.Failure.RETRYABLE : "503 should be retried.";
+        assert RetryPolicy.classify(new HttpStatusException("", 429, -1)) == RetryPolicy.Failure.RETRYABLE : "429 should be retried.";
+        assert RetryPolicy.classify(new HttpStatusException("", 404, -1)) == RetryPolicy.Failure.PERMANENT : "404 should not be retried.";
+        assert RetryPolicy.classify(new CompletionException(new SocketTimeoutException())) == RetryPolicy.Failure.RETRYABLE : "Timeouts should be retried.";
+        assert RetryPolicy.classify(new IllegalStateException()) == RetryPolicy.Failure.PERMANENT : "Bugs should not be retried.";
+    }
+
+    @Test
+    void retriesAsyncUntilSuccess() {
+        RetryPolicy policy = new RetryPolicy(createConfig(3, 100));
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = policy.executeAsync("test", () -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new HttpStatusException("", 503, -1))
+                : CompletableFuture.completedFuture("ok"))
+                .join();
+
+        assert result.equals("ok") : "Third attempt should succeed.";
+        assert attempts.get() == 3 : "Should take three attempts, took " + attempts.get();
+    }
+
+    @Test
+    void doesNotRetryPermanentFailures() {
+        RetryPolicy policy = new RetryPolicy(createConfig(3, 100));
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            policy.execute("test", () -> {
+                attempts.incrementAndGet();
+                throw new HttpStatusException("", 404, -1);
+            });
+            assert false : "404 should fail.";
+        } catch (IOException e) {
+            assert attempts.get() == 1 : "404 should not be retried.";
+        }
+    }
+
+    @Test
+    void stopsRetryingWhenBudgetIsSpent() {
+        RetryPolicy policy = new RetryPolicy(createConfig(3, 4));
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                policy.execute("test", () -> {
+                    attempts.incrementAndGet();
+                    throw new SocketTimeoutException();
+                });
+            } catch (IOException expected) {
+            }
+        }
+
+        assert attempts.get() == 7 : "Only half the budget should be spent on retries, made " + attempts.get() + " attempts";
+    }
+
+    private AppConfig createConfig(int attempts, int budget) {
+        return AppConfig.builder()
+                .retryAttempts(attempts)
+                .retryDelayMs(1)
+                .retryMaxDelayMs(5)
+                .retryBudget(budget)
+                .build();
+    }
+
+}
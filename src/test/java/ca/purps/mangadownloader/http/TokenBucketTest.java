@@ -0,0 +1,34 @@
+package ca.purps.mangadownloader.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class TokenBucketTest {
+
+    @Test
+    void allowsBurstThenThrottles() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+
+        assert bucket.reserve(1) == 0;
+        assert bucket.reserve(1) == 0;
+        assert bucket.reserve(1) == 0;
+
+        long wait = bucket.reserve(1);
+        assert wait > TimeUnit.MILLISECONDS.toNanos(50) && wait <= TimeUnit.MILLISECONDS.toNanos(100) : "Fourth permit should wait about 100 ms, waited " + wait;
+
+        long nextWait = bucket.reserve(1);
+        assert nextWait > wait : "Later reservations should queue behind earlier ones.";
+    }
+
+    @Test
+    void pauseDelaysUnlimitedBucket() {
+        TokenBucket bucket = new TokenBucket(0, 1);
+
+        assert bucket.reserve(100) == 0 : "A bucket without a rate should not throttle.";
+
+        bucket.pause(500);
+        assert bucket.reserve(1) > TimeUnit.MILLISECONDS.toNanos(400) : "A paused bucket should hold requests back.";
+    }
+
+}
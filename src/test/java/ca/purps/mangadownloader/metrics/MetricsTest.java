@@ -0,0 +1,76 @@
+package ca.purps.mangadownloader.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import javax.management.ObjectName;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+
+public class MetricsTest {
+
+    @Test
+    void rendersCountersGaugesAndHistograms() {
+        Metrics.counter("test_events_total", "Test events", "kind", "a").add(3);
+        Metrics.gauge("test_depth", "Test depth", () -> 7);
+        Histogram histogram = Metrics.histogram("test_latency_seconds", "Test latency", "host", "example.com");
+        histogram.observe(0.02);
+        histogram.observe(3);
+
+        String text = PrometheusFormat.render();
+
+        assert text.contains("# TYPE test_events_total counter\n") : "Counter type missing:\n" + text;
+        assert text.contains("test_events_total{kind=\"a\"} 3\n") : "Counter sample missing:\n" + text;
+        assert text.contains("test_depth 7\n") : "Gauge sample missing:\n" + text;
+        assert text.contains("test_latency_seconds_bucket{host=\"example.com\",le=\"0.01\"} 0\n") : "Empty bucket wrong:\n" + text;
+        assert text.contains("test_latency_seconds_bucket{host=\"example.com\",le=\"0.025\"} 1\n") : "Bucket not cumulative:\n" + text;
+        assert text.contains("test_latency_seconds_bucket{host=\"example.com\",le=\"+Inf\"} 2\n") : "+Inf bucket wrong:\n" + text;
+        assert text.contains("test_latency_seconds_count{host=\"example.com\"} 2\n") : "Histogram count missing:\n" + text;
+    }
+
+    @Test
+    void returnsSameMetricForSameLabels() {
+        Counter first = Metrics.counter("test_same_total", "Test", "host", "a");
+        Counter second = Metrics.counter("test_same_total", "Test", "host", "a");
+        Counter other = Metrics.counter("test_same_total", "Test", "host", "b");
+
+        assert first == second : "Same name and labels should share a counter";
+        assert first != other : "Different labels should get their own counter";
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void rejectsTypeMismatch() {
+        Metrics.counter("test_mismatch", "Test");
+        Metrics.histogram("test_mismatch", "Test");
+    }
+
+    @Test
+    void exportsOverHttpAndJmx() throws Exception {
+        Metrics.counter("test_exported_total", "Test").inc();
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            int port = socket.getLocalPort();
+            socket.close();
+
+            try (MetricsExporter exporter = MetricsExporter.start(AppConfig.builder().metricsPort(port).build())) {
+                HttpResponse<String> response = HttpClient.newHttpClient().send(
+                        HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/metrics")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+
+                assert response.statusCode() == 200 : "Endpoint returned " + response.statusCode();
+                assert response.body().contains("test_exported_total 1") : "Endpoint body missing counter:\n" + response.body();
+
+                Object value = ManagementFactory.getPlatformMBeanServer()
+                        .getAttribute(new ObjectName(MetricsExporter.OBJECT_NAME), "test_exported_total");
+                assert Long.valueOf(1).equals(value) : "JMX attribute was " + value;
+            }
+        }
+    }
+
+}
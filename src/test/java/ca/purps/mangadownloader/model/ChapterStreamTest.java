@@ -0,0 +1,68 @@
+package ca.purps.mangadownloader.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.exception.ScraperException;
+
+public class ChapterStreamTest {
+
+    @Test
+    void preservesOrder() {
+        try (ChapterStream stream = new ChapterStream(2, List.of(), sink -> {
+            for (int i = 0; i < 10; i++) {
+                sink.accept(createChapter(i));
+            }
+        })) {
+            List<Integer> indexes = new ArrayList<>();
+            stream.forEachRemaining(chapter -> indexes.add(chapter.getSeriesIndex()));
+
+            assert indexes.equals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)) : "Chapters should arrive in scrape order.";
+        }
+    }
+
+    @Test
+    void boundsScrapeAhead() throws InterruptedException {
+        AtomicInteger produced = new AtomicInteger();
+
+        try (ChapterStream stream = new ChapterStream(2, List.of(), sink -> {
+            for (int i = 0; i < 10; i++) {
+                sink.accept(createChapter(i));
+                produced.incrementAndGet();
+            }
+        })) {
+            assert stream.hasNext() : "Stream should have chapters.";
+            Thread.sleep(200);
+
+            assert produced.get() <= 3 : "Producer should block once the buffer is full, produced " + produced.get();
+        }
+    }
+
+    @Test(expectedExceptions = ScraperException.class)
+    void propagatesFailure() {
+        try (ChapterStream stream = new ChapterStream(2, List.of(), sink -> {
+            sink.accept(createChapter(0));
+            throw new IllegalStateException("boom");
+        })) {
+            stream.forEachRemaining(chapter -> {
+            });
+        }
+    }
+
+    private Chapter createChapter(int index) {
+        return Chapter.builder()
+                .series(Mockito.mock(Series.class))
+                .url("https://example.com/chapter/" + index)
+                .id(String.valueOf(index))
+                .name("Chapter " + index)
+                .description("")
+                .imageUrls(List.of())
+                .seriesIndex(index)
+                .build();
+    }
+
+}
@@ -0,0 +1,102 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.Series;
+import ca.purps.mangadownloader.model.Status;
+
+public class ChapterScrapeStageTest {
+
+    private static final List<String> URLS = IntStream.range(0, 20)
+            .mapToObj(i -> "https://example.com/chapter-" + i)
+            .toList();
+
+    private final Series series = Series.builder()
+            .url("https://example.com")
+            .id(1)
+            .title("Series")
+            .description("")
+            .authors(List.of())
+            .genres(List.of())
+            .status(Status.ONGOING)
+            .chapters(new ArrayList<>())
+            .build();
+
+    @Test
+    void keepsSeriesOrderWhenPagesFinishOutOfOrder() {
+        ChapterScrapeStage stage = new ChapterScrapeStage(AppConfig.builder().maxConcurrentScrapes(4).build());
+
+        List<Chapter> chapters = stage.scrape(ChapterScrapeStageTest.URLS, (url, index) -> {
+            sleep(ThreadLocalRandom.current().nextInt(1, 15));
+            return createChapter(url, index);
+        });
+
+        assert chapters.stream().map(Chapter::getUrl).toList().equals(ChapterScrapeStageTest.URLS)
+                : "Chapters should come out in series order, got " + chapters.stream().map(Chapter::getUrl).toList();
+        assert chapters.stream().map(Chapter::getSeriesIndex).toList().equals(IntStream.range(0, 20).boxed().toList())
+                : "Each chapter should be scraped with its position as series index";
+    }
+
+    @Test
+    void skipsChaptersThatFailToScrape() {
+        ChapterScrapeStage stage = new ChapterScrapeStage(AppConfig.builder().maxConcurrentScrapes(3).build());
+
+        List<Chapter> chapters = stage.scrape(ChapterScrapeStageTest.URLS, (url, index) -> {
+            if (index % 5 == 2) {
+                throw new IllegalStateException("Broken page " + url);
+            }
+            return createChapter(url, index);
+        });
+
+        List<Integer> indexes = chapters.stream().map(Chapter::getSeriesIndex).toList();
+        assert indexes.size() == 16 : "Four failed chapters should be skipped, got " + indexes;
+        assert indexes.stream().noneMatch(index -> index % 5 == 2) : "Failed chapters should be missing, got " + indexes;
+        assert indexes.equals(indexes.stream().sorted().toList()) : "Remaining chapters should stay in order, got " + indexes;
+    }
+
+    @Test
+    void boundsConcurrentScrapes() {
+        ChapterScrapeStage stage = new ChapterScrapeStage(AppConfig.builder().maxConcurrentScrapes(3).build());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        stage.scrape(ChapterScrapeStageTest.URLS, (url, index) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(10);
+            running.decrementAndGet();
+            return createChapter(url, index);
+        });
+
+        assert peak.get() <= 3 : "At most 3 pages should be scraped at once, saw " + peak.get();
+        assert peak.get() > 1 : "Pages should be scraped concurrently, saw " + peak.get();
+    }
+
+    private Chapter createChapter(String url, int index) {
+        return Chapter.builder()
+                .series(series)
+                .url(url)
+                .id(String.valueOf(index))
+                .name("Chapter " + index)
+                .description("")
+                .imageUrls(List.of())
+                .seriesIndex(index)
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
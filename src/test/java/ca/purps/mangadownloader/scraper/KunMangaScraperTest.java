@@ -0,0 +1,108 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.model.Chapter;
+import ca.purps.mangadownloader.model.Series;
+import okhttp3.OkHttpClient;
+
+public class KunMangaScraperTest {
+
+    private final List<String> requestedPaths = Collections.synchronizedList(new ArrayList<>());
+
+    private HttpServer server;
+    private String seriesUrl;
+    private KunMangaScraper scraper;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requestedPaths.add(path);
+            byte[] body = (path.contains("/chapter-") ? chapterPage(path) : seriesPage()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        seriesUrl = "http://localhost:" + server.getAddress().getPort() + "/manga/series";
+        scraper = new KunMangaScraper(AppConfig.builder().build(), new OkHttpClient());
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @BeforeMethod
+    public void clearRequests() {
+        requestedPaths.clear();
+    }
+
+    @Test
+    void scrapesSingleChapterWithItsSeriesIndex() {
+        Chapter chapter = scraper.scrapeChapter(seriesUrl + "/chapter-2/");
+
+        assert chapter.getSeriesIndex() == 1 : "Second chapter in reading order should have index 1, got " + chapter.getSeriesIndex();
+        assert "2".equals(chapter.getId()) : "Chapter id should come from the page, got " + chapter.getId();
+        assert chapter.getImageUrls().size() == 2 : "Chapter images should be read, got " + chapter.getImageUrls();
+        assert requestedPaths.equals(List.of("/manga/series", "/manga/series/chapter-2/"))
+                : "Only the series page and the requested chapter should be fetched, got " + requestedPaths;
+    }
+
+    @Test
+    void stubsTrackedChaptersWithoutFetchingThem() {
+        Series series = scraper.scrapeSeries(seriesUrl, url -> !url.contains("/chapter-3"));
+
+        List<Chapter> chapters = series.getChapters();
+        assert chapters.stream().map(Chapter::isStub).toList().equals(List.of(true, true, false))
+                : "Tracked chapters should be stubs and the new one scraped, got " + chapters;
+        assert chapters.stream().map(Chapter::getSeriesIndex).toList().equals(List.of(0, 1, 2))
+                : "Stubs should keep their place in the series";
+        assert "1".equals(chapters.get(0).getId()) && "Chapter 1".equals(chapters.get(0).getName())
+                : "Stub id and title should come from the series page, got " + chapters.get(0);
+        assert chapters.get(0).getImageUrls().isEmpty() : "Stubs should carry no images";
+        assert requestedPaths.equals(List.of("/manga/series", "/manga/series/chapter-3/"))
+                : "Only the untracked chapter should be fetched, got " + requestedPaths;
+    }
+
+    private String seriesPage() {
+        StringBuilder html = new StringBuilder("<html><head>")
+                .append("<meta property=\"og:title\" content=\"Series\">")
+                .append("</head><body><ul class=\"version-chap\">");
+        // Newest chapter first, as the site lists them
+        for (int i = 3; i >= 1; i--) {
+            html.append("<li class=\"wp-manga-chapter\"><a href=\"")
+                    .append(seriesUrl).append("/chapter-").append(i).append("/\">Chapter ").append(i).append("</a></li>");
+        }
+        return html.append("</ul></body></html>").toString();
+    }
+
+    private String chapterPage(String path) {
+        String number = path.replaceAll(".*/chapter-([\\d\\-]+)/?$", "$1");
+        return "<html><head><meta property=\"og:description\" content=\"Chapter " + number + "\"></head><body>"
+                + "<script>var manga = {\"query_vars\":{\"chapter\":\"chapter-" + number + "\"}};</script>"
+                + "<div class=\"reading-content\">"
+                + "<img class=\"wp-manga-chapter-img\" src=\"https://example.com/" + number + "/1.jpg\">"
+                + "<img class=\"wp-manga-chapter-img\" src=\"https://example.com/" + number + "/2.jpg\">"
+                + "</div></body></html>";
+    }
+
+}
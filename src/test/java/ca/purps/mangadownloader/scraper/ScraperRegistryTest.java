@@ -0,0 +1,46 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+import ca.purps.mangadownloader.http.RetryPolicy;
+import okhttp3.OkHttpClient;
+
+public class ScraperRegistryTest {
+
+    private final ScraperRegistry registry = ScraperRegistry.load(AppConfig.builder().build(), new OkHttpClient(), new RetryPolicy(AppConfig.builder().build()));
+
+    @Test
+    void classifiesKnownHosts() {
+        assert registry.classify("https://bato.to/series/178142") == UrlType.SERIES : "Batoto series URL should be a series.";
+        assert registry.classify("https://bato.to/chapter/3185633") == UrlType.CHAPTER : "Batoto chapter URL should be a chapter.";
+        assert registry.classify("https://www.kunmanga.com/manga/ill-marry-your-brother") == UrlType.SERIES : "KunManga series URL should be a series.";
+        assert registry.classify("https://kunmanga.com/manga/ill-marry-your-brother/chapter-3/") == UrlType.CHAPTER : "KunManga chapter URL should be a chapter.";
+        assert registry.classify("https://example.com/series/1") == UrlType.UNSUPPORTED : "Unknown host should be unsupported.";
+    }
+
+    @Test
+    void createsScrapersLazilyAndOnce() {
+        MangaScraper first = registry.getScraper("https://bato.to/series/178142");
+        MangaScraper second = registry.getScraper("https://bato.to/chapter/3185633");
+
+        assert first instanceof BatotoScraper : "Batoto URL should resolve to the Batoto scraper.";
+        assert first == second : "The scraper for a host should be created once.";
+    }
+
+    @Test
+    void resolvesExplicitProviders() {
+        ScraperRegistry custom = ScraperRegistry.of(AppConfig.builder().build(), new OkHttpClient(), new RetryPolicy(AppConfig.builder().build()),
+                List.of(new BatotoScraper.Provider(), new KunMangaScraper.Provider()));
+
+        assert custom.findProvider("https://bato.to/series/1").get() instanceof BatotoScraper.Provider : "Provider lookup should be by host.";
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void rejectsUnsupportedUrl() {
+        registry.getScraper("https://example.com/series/1");
+    }
+
+}
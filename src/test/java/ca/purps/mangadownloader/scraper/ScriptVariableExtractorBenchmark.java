@@ -0,0 +1,111 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the old per-variable {@code script:containsData(...)} selects with
+ * a single {@link ScriptVariableExtractor} pass over a Bato.to-like chapter
+ * page. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ca.purps.mangadownloader.scraper.ScriptVariableExtractorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptVariableExtractorBenchmark {
+
+    private static final Pattern CHAPTER_NAME_PATTERN = Pattern.compile("local_text_epi\\s*=\\s*'([^']+)'");
+    private static final Pattern CHAPTER_ID_PATTERN = Pattern.compile("episodeIid\\s*=\\s*(\\d+);");
+    private static final Pattern IMAGE_VARIABLE_PATTERN = Pattern.compile("imgHttps\\s*=\\s*\\[(.*?)\\];");
+    private static final Pattern SERIES_ID_PATTERN = Pattern.compile("subjectIid\\s*=\\s*(\\d+);");
+
+    private static final ScriptVariableExtractor EXTRACTOR = ScriptVariableExtractor.builder()
+            .variable("subjectIid", SERIES_ID_PATTERN)
+            .variable("episodeIid", CHAPTER_ID_PATTERN)
+            .variable("local_text_epi", CHAPTER_NAME_PATTERN)
+            .variable("imgHttps", IMAGE_VARIABLE_PATTERN)
+            .build();
+
+    private Document doc;
+
+    @Setup
+    public void setup() {
+        StringBuilder html = new StringBuilder("<html><head>");
+        for (int i = 0; i < 20; i++) {
+            html.append("<script>window.dataLayer = window.dataLayer || []; function gtag").append(i).append("(){}</script>");
+        }
+        html.append("</head><body>");
+        for (int i = 0; i < 500; i++) {
+            html.append("<div class=\"item\"><a href=\"/chapter/").append(i).append("\">Chapter ").append(i).append("</a></div>");
+        }
+        html.append("<script>const subjectIid = 178142;\nconst episodeIid = 3185633;\nconst local_text_epi = 'Ch.1';\nconst imgHttps = [");
+        for (int i = 0; i < 80; i++) {
+            html.append(i == 0 ? "" : ",").append("\"https://xfs-n01.example.org/media/7006/").append(i).append(".webp\"");
+        }
+        html.append("];</script>");
+        for (int i = 0; i < 10; i++) {
+            html.append("<script>console.log('analytics ").append(i).append("');</script>");
+        }
+        html.append("</body></html>");
+
+        doc = Jsoup.parse(html.toString(), "https://bato.to/chapter/3185633");
+    }
+
+    @Benchmark
+    public void containsDataSelects(Blackhole blackhole) {
+        blackhole.consume(legacyExtract(doc, "subjectIid", SERIES_ID_PATTERN));
+        blackhole.consume(legacyExtract(doc, "episodeIid", CHAPTER_ID_PATTERN));
+        blackhole.consume(legacyExtract(doc, "local_text_epi", CHAPTER_NAME_PATTERN));
+        blackhole.consume(legacyExtract(doc, "imgHttps", IMAGE_VARIABLE_PATTERN));
+    }
+
+    @Benchmark
+    public void singlePassExtractor(Blackhole blackhole) {
+        ScriptVariableExtractor.Result result = EXTRACTOR.extract(doc);
+        blackhole.consume(result.get("subjectIid"));
+        blackhole.consume(result.get("episodeIid"));
+        blackhole.consume(result.get("local_text_epi"));
+        blackhole.consume(result.get("imgHttps"));
+    }
+
+    private Optional<String> legacyExtract(Document doc, String data, Pattern pattern) {
+        return Optional.ofNullable(doc.select("script:containsData(" + data + ")").html())
+                .flatMap(script -> pattern.matcher(script)
+                        .results()
+                        .findFirst()
+                        .map(match -> match.group(1).trim()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ScriptVariableExtractorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
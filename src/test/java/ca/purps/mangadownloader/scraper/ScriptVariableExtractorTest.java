@@ -0,0 +1,45 @@
+package ca.purps.mangadownloader.scraper;
+
+import java.util.regex.Pattern;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.testng.annotations.Test;
+
+public class ScriptVariableExtractorTest {
+
+    private static final ScriptVariableExtractor EXTRACTOR = ScriptVariableExtractor.builder()
+            .variable("episodeIid", Pattern.compile("episodeIid\\s*=\\s*(\\d+);"))
+            .variable("local_text_epi", Pattern.compile("local_text_epi\\s*=\\s*'([^']+)'"))
+            .variable("chapter", "query_vars", Pattern.compile("\"chapter\":\"chapter-([\\d\\-]+)\""))
+            .build();
+
+    @Test
+    void extractsAcrossScripts() {
+        Document doc = Jsoup.parse("<html><head><script>var a = 1;</script></head><body>"
+                + "<script>const episodeIid = 42;</script>"
+                + "<script>const local_text_epi = 'Ch.1';</script>"
+                + "<script>var query_vars = {\"chapter\":\"chapter-3-5\"};</script>"
+                + "</body></html>");
+
+        ScriptVariableExtractor.Result result = EXTRACTOR.extract(doc);
+
+        assert result.isComplete() : "All variables should be captured.";
+        assert result.get("episodeIid").orElseThrow().equals("42");
+        assert result.get("local_text_epi").orElseThrow().equals("Ch.1");
+        assert result.get("chapter").orElseThrow().equals("3-5");
+    }
+
+    @Test
+    void keepsFirstMatch() {
+        ScriptVariableExtractor.Result result = EXTRACTOR.newResult();
+
+        result.accept("const episodeIid = 1;");
+        result.accept("const episodeIid = 2;");
+
+        assert result.get("episodeIid").orElseThrow().equals("1") : "The first captured value should win.";
+        assert !result.isComplete() : "Missing variables should leave the result incomplete.";
+        assert result.get("local_text_epi").isEmpty();
+    }
+
+}
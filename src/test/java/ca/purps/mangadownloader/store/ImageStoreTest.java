@@ -0,0 +1,83 @@
+package ca.purps.mangadownloader.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+import ca.purps.mangadownloader.config.AppConfig;
+
+public class ImageStoreTest {
+
+    @Test
+    void deduplicatesByContentAndServesByUrl() throws IOException {
+        Path dir = Files.createTempDirectory("image-store");
+        AppConfig config = createConfig(dir, 1024);
+
+        try (ImageStore store = new ImageStore(config)) {
+            store.put("https://example.com/a/credits.jpg", createImage(dir, "credits"));
+            store.put("https://example.com/b/credits.jpg", createImage(dir, "credits"));
+
+            Path blob = store.lookup("https://example.com/b/credits.jpg").orElseThrow();
+            assert store.lookup("https://example.com/c/credits.jpg").isEmpty() : "Unknown URL should miss.";
+            assert store.getStats().getRequestsSaved() == 0 : "A lookup alone should not count as saved.";
+            store.reused(blob);
+
+            ImageStore.Stats stats = store.getStats();
+            assert stats.getBytesStored() == 7 : "Identical content should be stored once.";
+            assert stats.getDuplicateBytes() == 7 : "Second copy should count as a duplicate.";
+            assert stats.getRequestsSaved() == 1 && stats.getBytesSaved() == 7 : "Hit should count as a saved request.";
+        }
+
+        try (ImageStore reopened = new ImageStore(config)) {
+            assert reopened.lookup("https://example.com/a/credits.jpg").isPresent() : "Index should survive a restart.";
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("image-store");
+
+        try (ImageStore store = new ImageStore(createConfig(dir, 10))) {
+            store.put("https://example.com/1.jpg", createImage(dir, "first"));
+            Thread.sleep(5);
+            store.put("https://example.com/2.jpg", createImage(dir, "second"));
+
+            assert store.lookup("https://example.com/1.jpg").isEmpty() : "Oldest image should be evicted.";
+            assert store.lookup("https://example.com/2.jpg").isPresent() : "Newest image should be kept.";
+        }
+    }
+
+    @Test
+    void recordsStreamedBodies() throws IOException {
+        Path dir = Files.createTempDirectory("image-store");
+
+        try (ImageStore store = new ImageStore(createConfig(dir, 1024))) {
+            try (ImageStore.Recorder recorder = store.record("https://example.com/page.jpg");
+                    InputStream in = recorder.tee(new ByteArrayInputStream("page".getBytes(StandardCharsets.UTF_8)))) {
+                in.readAllBytes();
+                recorder.commit();
+            }
+
+            Path blob = store.lookup("https://example.com/page.jpg").orElseThrow();
+            assert Files.readString(blob).equals("page") : "Recorded body should be stored as read.";
+        }
+    }
+
+    private AppConfig createConfig(Path dir, long maxBytes) {
+        return AppConfig.builder()
+                .imageStorePath(dir.resolve("store"))
+                .imageStoreMaxBytes(maxBytes)
+                .imageStoreEnabled(true)
+                .build();
+    }
+
+    private Path createImage(Path dir, String content) throws IOException {
+        return Files.writeString(Files.createTempFile(dir, "image", ".jpg"), content);
+    }
+
+}
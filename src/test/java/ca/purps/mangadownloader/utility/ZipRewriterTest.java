@@ -0,0 +1,96 @@
+package ca.purps.mangadownloader.utility;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.testng.annotations.Test;
+
+public class ZipRewriterTest {
+
+    @Test
+    void replacesEntriesAndCopiesTheRest() throws IOException {
+        Path dir = Files.createTempDirectory("zip-rewriter");
+        Path source = dir.resolve("book.epub");
+        Path target = dir.resolve("rewritten.epub");
+
+        byte[] page = new byte[64 * 1024];
+        new Random(7).nextBytes(page);
+        byte[] text = "<html>page</html>".repeat(500).getBytes(StandardCharsets.UTF_8);
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(source))) {
+            byte[] mimetype = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+            ZipEntry mimetypeEntry = new ZipEntry("mimetype");
+            mimetypeEntry.setMethod(ZipEntry.STORED);
+            mimetypeEntry.setSize(mimetype.length);
+            mimetypeEntry.setCrc(crc(mimetype));
+            zos.putNextEntry(mimetypeEntry);
+            zos.write(mimetype);
+            zos.putNextEntry(new ZipEntry("OEBPS/content.opf"));
+            zos.write("<package>old</package>".getBytes(StandardCharsets.UTF_8));
+            zos.putNextEntry(new ZipEntry("OEBPS/Text/0001.xhtml"));
+            zos.write(text);
+            zos.putNextEntry(ZipEntries.create("OEBPS/Images/0001.jpg", page.length, crc(page)));
+            zos.write(page);
+            zos.closeEntry();
+        }
+
+        try (ZipRewriter epub = new ZipRewriter(source)) {
+            assert epub.getNames().equals(List.of("mimetype", "OEBPS/content.opf", "OEBPS/Text/0001.xhtml", "OEBPS/Images/0001.jpg"))
+                    : "Entries should be listed in archive order, got " + epub.getNames();
+            assert "<package>old</package>".equals(new String(epub.read("OEBPS/content.opf"), StandardCharsets.UTF_8))
+                    : "Deflated entry should be read back inflated";
+
+            epub.replace("OEBPS/content.opf", "<package>new</package>".getBytes(StandardCharsets.UTF_8));
+            epub.writeTo(target);
+        }
+
+        try (ZipFile original = new ZipFile(source.toFile()); ZipFile rewritten = new ZipFile(target.toFile())) {
+            assert Collections.list(rewritten.entries()).stream().map(ZipEntry::getName).toList()
+                    .equals(List.of("mimetype", "OEBPS/content.opf", "OEBPS/Text/0001.xhtml", "OEBPS/Images/0001.jpg"))
+                    : "Entry order should be kept";
+            assert rewritten.getEntry("mimetype").getMethod() == ZipEntry.STORED : "mimetype should stay stored";
+            assert "<package>new</package>".equals(new String(rewritten.getInputStream(rewritten.getEntry("OEBPS/content.opf")).readAllBytes(),
+                    StandardCharsets.UTF_8)) : "Replaced entry should hold the new content";
+
+            for (String name : List.of("OEBPS/Text/0001.xhtml", "OEBPS/Images/0001.jpg")) {
+                ZipEntry before = original.getEntry(name);
+                ZipEntry after = rewritten.getEntry(name);
+                assert after.getMethod() == before.getMethod() : "Compression of " + name + " should not change";
+                assert after.getCompressedSize() == before.getCompressedSize() : "Compressed bytes of " + name + " should be copied";
+                assert after.getCrc() == before.getCrc() : "CRC of " + name + " should be kept";
+            }
+            assert new String(rewritten.getInputStream(rewritten.getEntry("OEBPS/Text/0001.xhtml")).readAllBytes(), StandardCharsets.UTF_8)
+                    .equals(new String(text, StandardCharsets.UTF_8)) : "Copied deflated entry should still inflate";
+            assert Arrays.equals(rewritten.getInputStream(rewritten.getEntry("OEBPS/Images/0001.jpg")).readAllBytes(), page)
+                    : "Copied stored entry should be unchanged";
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotZips() throws IOException {
+        Path file = Files.writeString(Files.createTempFile("not-a-zip", ".epub"), "plain text");
+        try (ZipRewriter ignored = new ZipRewriter(file)) {
+            assert false : "A file without a central directory should be rejected";
+        } catch (ZipException e) {
+            assert e.getMessage().startsWith("Not a zip archive") : "Unexpected message: " + e.getMessage();
+        }
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+}